@@ -30,7 +30,7 @@ public class BookInfo {
     }
 
     public BookInfo setGenres(Map<String, Integer> genres) {
-        this.genres = Collections.unmodifiableMap(genres);
+        this.genres = genres == null ? null : Collections.unmodifiableMap(genres);
         return this;
     }
 
@@ -39,7 +39,7 @@ public class BookInfo {
     }
 
     public BookInfo setSequences(Map<String, Integer> sequences) {
-        this.sequences = Collections.unmodifiableMap(sequences);
+        this.sequences = sequences == null ? null : Collections.unmodifiableMap(sequences);
         return this;
     }
 
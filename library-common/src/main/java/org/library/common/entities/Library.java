@@ -1,5 +1,6 @@
 package org.library.common.entities;
 
+import org.library.common.utils.HashType;
 import org.springframework.data.annotation.Id;
 
 import java.time.LocalDateTime;
@@ -11,6 +12,19 @@ public class Library {
 
     private String path;
     private LocalDateTime updated;
+    /**
+     * Algorithm of the file content fingerprint, default one is used if not set
+     */
+    private HashType hashType;
+    /**
+     * Id of the change feed and offset of the changes parsed already
+     */
+    private Long changeFeedId;
+    private long changeFeedOffset;
+    /**
+     * Checkpoint of the unfinished parse: files before the cursor are parsed and saved
+     */
+    private String parseCursor;
 
     public Library() {
     }
@@ -31,6 +45,38 @@ public class Library {
         this.updated = updated;
     }
 
+    public HashType getHashType() {
+        return hashType;
+    }
+
+    public void setHashType(HashType hashType) {
+        this.hashType = hashType;
+    }
+
+    public Long getChangeFeedId() {
+        return changeFeedId;
+    }
+
+    public void setChangeFeedId(Long changeFeedId) {
+        this.changeFeedId = changeFeedId;
+    }
+
+    public long getChangeFeedOffset() {
+        return changeFeedOffset;
+    }
+
+    public void setChangeFeedOffset(long changeFeedOffset) {
+        this.changeFeedOffset = changeFeedOffset;
+    }
+
+    public String getParseCursor() {
+        return parseCursor;
+    }
+
+    public void setParseCursor(String parseCursor) {
+        this.parseCursor = parseCursor;
+    }
+
     public String getId() {
         return id;
     }
@@ -44,6 +90,10 @@ public class Library {
         return "Library{" +
                 "path='" + path + '\'' +
                 ", updated=" + updated +
+                ", hashType=" + hashType +
+                ", changeFeedId=" + changeFeedId +
+                ", changeFeedOffset=" + changeFeedOffset +
+                ", parseCursor='" + parseCursor + '\'' +
                 ", id='" + id + '\'' +
                 '}';
     }
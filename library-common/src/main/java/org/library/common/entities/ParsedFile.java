@@ -97,6 +97,20 @@ public class ParsedFile {
         cover.setCoverName(name);
         cover.setCoverType(coverType);
         cover.setBytes(bytes);
+        cover.setSize(bytes == null ? 0 : bytes.length);
+    }
+
+    /**
+     * Cover kept in the cover store instead of the document
+     *
+     * @param reference reference of the cover in the store
+     * @param size      size of the cover in bytes
+     */
+    public void setCoverReference(String name, String coverType, String reference, long size) {
+        cover.setCoverName(name);
+        cover.setCoverType(coverType);
+        cover.setReference(reference);
+        cover.setSize(size);
     }
 
     public Cover getCover() {
@@ -171,44 +185,85 @@ public class ParsedFile {
         }
     }
 
+    /**
+     * Element with children and attributes
+     * Children list and attributes are allocated on the first add, attributes are kept as key-value pairs
+     * in a small array since elements have only a few of them. Names are interned to be shared between documents
+     */
     public static class TagElement extends Element {
-        private List<Element> elements = new ArrayList<>();
-        private Map<String, String> attributes = new HashMap<>();
+        private static final int INITIAL_ELEMENTS_CAPACITY = 2;
+
+        private List<Element> elements;
+        private String[] attributes;
 
         public TagElement(String name) {
             super();
-            this.name = name;
+            this.name = name == null ? null : name.intern();
         }
 
         public void addElement(Element element) {
+            if (elements == null) {
+                elements = new ArrayList<>(INITIAL_ELEMENTS_CAPACITY);
+            }
             elements.add(element);
         }
 
         public void addAttribute(String key, String value) {
-            attributes.put(key, value);
+            if (attributes == null) {
+                attributes = new String[]{key.intern(), value};
+                return;
+            }
+            for (int i = 0; i < attributes.length; i += 2) {
+                if (attributes[i].equals(key)) {
+                    attributes[i + 1] = value;
+                    return;
+                }
+            }
+            int length = attributes.length;
+            attributes = Arrays.copyOf(attributes, length + 2);
+            attributes[length] = key.intern();
+            attributes[length + 1] = value;
         }
 
         public String getAttribute(String key) {
-            return attributes.getOrDefault(key, null);
+            if (attributes != null) {
+                for (int i = 0; i < attributes.length; i += 2) {
+                    if (attributes[i].equals(key)) {
+                        return attributes[i + 1];
+                    }
+                }
+            }
+            return null;
+        }
+
+        public Map<String, String> getAttributes() {
+            if (attributes == null) {
+                return Collections.emptyMap();
+            }
+            Map<String, String> result = new LinkedHashMap<>();
+            for (int i = 0; i < attributes.length; i += 2) {
+                result.put(attributes[i], attributes[i + 1]);
+            }
+            return result;
         }
 
         @Override
         public String toString() {
             return "Element{" +
                     "name='" + name + '\'' +
-                    ", elements=" + elements +
-                    ", attributes=" + attributes +
+                    ", elements=" + (elements == null ? Collections.emptyList() : elements) +
+                    ", attributes=" + getAttributes() +
                     '}';
         }
 
         @Override
         public Iterator<Element> iterator() {
-            return elements.iterator();
+            return elements == null ? Collections.emptyIterator() : elements.iterator();
         }
 
         @Override
         public Stream<Element> stream() {
-            return elements.stream();
+            return elements == null ? Stream.empty() : elements.stream();
         }
     }
 
@@ -305,14 +360,19 @@ public class ParsedFile {
                 '}';
     }
 
+    /**
+     * Unchanged: file is the same as already stored one and is not parsed again
+     */
     public enum ProcessState {
-        None, XMLProcessed, BookInfoProcessed
+        None, XMLProcessed, BookInfoProcessed, Unchanged
     }
 
     public class Cover {
         private String coverName;
         private byte[] bytes;
         private String coverType;
+        private String reference;
+        private long size;
 
         public String getCoverName() {
             return coverName;
@@ -338,12 +398,30 @@ public class ParsedFile {
             return coverType;
         }
 
+        public String getReference() {
+            return reference;
+        }
+
+        public void setReference(String reference) {
+            this.reference = reference;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public void setSize(long size) {
+            this.size = size;
+        }
+
         @Override
         public String toString() {
             return "Cover{" +
                     "coverName='" + coverName + '\'' +
                     "coverType='" + coverType + '\'' +
                     ", bytes length=" + (bytes == null ? -1 : bytes.length) +
+                    ", reference='" + reference + '\'' +
+                    ", size=" + size +
                     '}';
         }
     }
@@ -8,6 +8,7 @@ public class ParsedFilesStatus {
     private final LongAdder xmlParsedCount = new LongAdder();
     private final LongAdder infoParsedCount = new LongAdder();
     private final LongAdder savedCount = new LongAdder();
+    private final LongAdder unchangedCount = new LongAdder();
 
     public ParsedFilesStatus(int count) {
         this.count = count;
@@ -33,6 +34,10 @@ public class ParsedFilesStatus {
         return fileInfoUpdatedCount;
     }
 
+    public LongAdder getUnchangedCount() {
+        return unchangedCount;
+    }
+
     @Override
     public String toString() {
         return "ParsedFilesStatus{" +
@@ -41,6 +46,7 @@ public class ParsedFilesStatus {
                 ", xmlParsedCount=" + xmlParsedCount +
                 ", infoParsedCount=" + infoParsedCount +
                 ", savedCount=" + savedCount +
+                ", unchangedCount=" + unchangedCount +
                 '}';
     }
 }
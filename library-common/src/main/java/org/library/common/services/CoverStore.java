@@ -0,0 +1,135 @@
+package org.library.common.services;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.library.common.utils.FileUtils;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Content addressed store of cover images on disk
+ * Cover is written to a temporary file and moved to root/xx/yy/hash on commit,
+ * where hash is SHA-1 of the content, so the same image is stored only once
+ */
+public class CoverStore {
+    private static final Logger LOGGER = LogManager.getLogger(CoverStore.class);
+    private static final String DIGEST_ALGORITHM = "SHA-1";
+    private static final String TEMP_PREFIX = "cover";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Path root;
+
+    public CoverStore(Path root) throws IOException {
+        this.root = Files.createDirectories(root);
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    /**
+     * Open output for a new cover
+     * Caller must either commit or discard it
+     *
+     * @return cover output
+     */
+    public CoverOutput create() throws IOException {
+        return new CoverOutput(Files.createTempFile(root, TEMP_PREFIX, TEMP_SUFFIX));
+    }
+
+    /**
+     * @param reference reference returned by CoverOutput.commit
+     * @return path of the stored cover
+     */
+    public Path resolve(String reference) {
+        return root.resolve(reference.substring(0, 2)).resolve(reference.substring(2, 4)).resolve(reference);
+    }
+
+    public class CoverOutput extends OutputStream {
+        private final Path tempPath;
+        private final MessageDigest digest;
+        private final OutputStream out;
+        private long size;
+        private boolean isClosed;
+
+        private CoverOutput(Path tempPath) throws IOException {
+            this.tempPath = tempPath;
+            try {
+                this.digest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+            } catch (NoSuchAlgorithmException e) {
+                Files.deleteIfExists(tempPath);
+                throw new IOException("Digest is not available: " + DIGEST_ALGORITHM, e);
+            }
+            this.out = new BufferedOutputStream(new DigestOutputStream(Files.newOutputStream(tempPath), digest), BUFFER_SIZE);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            size++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            size += len;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!isClosed) {
+                isClosed = true;
+                out.close();
+            }
+        }
+
+        /**
+         * Close the output and move the cover to its content addressed place
+         *
+         * @return reference of the stored cover
+         */
+        public String commit() throws IOException {
+            close();
+            String reference = FileUtils.bytesToHex(digest.digest());
+            Path target = resolve(reference);
+            if (Files.exists(target)) {
+                Files.delete(tempPath);
+                return reference;
+            }
+            Files.createDirectories(target.getParent());
+            try {
+                Files.move(tempPath, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException e) {
+                // same cover was committed concurrently
+                Files.deleteIfExists(tempPath);
+            }
+            return reference;
+        }
+
+        /**
+         * Close the output and delete the written data
+         */
+        public void discard() {
+            try {
+                close();
+                Files.deleteIfExists(tempPath);
+            } catch (IOException e) {
+                LOGGER.error("Cannot discard cover " + tempPath, e);
+            }
+        }
+    }
+}
@@ -1,14 +1,34 @@
 package org.library.common.services;
 
 import org.library.common.entities.FileInfo;
+import org.library.common.utils.FileHashCache;
+import org.library.common.utils.HashType;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.List;
+import java.util.function.BiConsumer;
 
 public interface FileService {
 
     List<Path> getFilesList(List<String> extensions, boolean isRecursive, Path path) throws IOException;
+
+    /**
+     * Pass files with given extensions to the consumer as soon as they are found, together with attributes read by the walk
+     * Consumer is called from several threads in no particular order
+     */
+    void walkFiles(List<String> extensions, boolean isRecursive, Path path,
+                   BiConsumer<Path, BasicFileAttributes> consumer) throws IOException;
+
     boolean checkFileInfoIsChangedAndUpdateIt(FileInfo fileInfo, Path filePath) throws IOException;
 
+    /**
+     * Calculate hash of the file content, size and modified date are expected to be set by the walk
+     * Hash stored in the cache for the same size and modified date is taken without reading the file
+     *
+     * @param hashCache cache of the library, can be null
+     */
+    void calculateFileInfoHash(FileInfo fileInfo, Path filePath, HashType hashType, FileHashCache hashCache) throws IOException;
+
 }
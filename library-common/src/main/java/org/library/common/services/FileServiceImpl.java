@@ -3,27 +3,59 @@ package org.library.common.services;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.library.common.entities.FileInfo;
+import org.library.common.utils.FileHashCache;
+import org.library.common.utils.FileHasher;
 import org.library.common.utils.FileInfoHelper;
 import org.library.common.utils.FileUtils;
+import org.library.common.utils.FileWalker;
+import org.library.common.utils.HashType;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.security.NoSuchAlgorithmException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.function.BiConsumer;
 
 public class FileServiceImpl implements FileService {
     private static final Logger LOGGER = LogManager.getLogger(FileServiceImpl.class);
+    private final FileWalker fileWalker;
+
+    public FileServiceImpl() {
+        this(FileWalker.DEFAULT_PARALLELISM);
+    }
+
+    /**
+     * @param walkThreadsCount count of directories listed at the same time
+     */
+    public FileServiceImpl(int walkThreadsCount) {
+        this.fileWalker = new FileWalker(walkThreadsCount);
+    }
 
     @Override
     public List<Path> getFilesList(List<String> extensions, boolean isRecursive, Path path) throws IOException {
-        return FileUtils.getFilesList(extensions, true, path);
+        List<Path> result = Collections.synchronizedList(new ArrayList<>());
+        walkFiles(extensions, true, path, (file, attributes) -> result.add(file));
+        result.sort(null);
+        return result;
+    }
+
+    @Override
+    public void walkFiles(List<String> extensions, boolean isRecursive, Path path,
+                          BiConsumer<Path, BasicFileAttributes> consumer) throws IOException {
+        fileWalker.walk(path, FileUtils.createExtensionsFilter(extensions), isRecursive, consumer);
     }
 
     @Override
     public boolean checkFileInfoIsChangedAndUpdateIt(final FileInfo fileInfo, Path filePath) throws IOException {
-        Long fileSize = FileUtils.getFileSize(filePath);
-        LocalDateTime fileDate = FileUtils.getFileLastModifiedDate(filePath);
+        BasicFileAttributes attributes = Files.readAttributes(filePath, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        Long fileSize = attributes.size();
+        LocalDateTime fileDate = FileUtils.fileTimeToLocalDateTime(attributes.lastModifiedTime());
         boolean result = FileInfoHelper.checkFileInfoChanged(fileInfo, fileSize, fileDate);
         if (result) {
             synchronized (fileInfo.getPath()) {
@@ -39,4 +71,12 @@ public class FileServiceImpl implements FileService {
         return result;
     }
 
+    @Override
+    public void calculateFileInfoHash(FileInfo fileInfo, Path filePath, HashType hashType, FileHashCache hashCache) throws IOException {
+        String hash = hashCache == null ? FileHasher.hash(filePath, hashType) : hashCache.hash(filePath, fileInfo, hashType);
+        synchronized (fileInfo.getPath()) {
+            fileInfo.setMd5Hash(hash);
+        }
+    }
+
 }
@@ -5,13 +5,72 @@ import org.apache.logging.log4j.Logger;
 import org.library.common.entities.FileInfo;
 import org.library.common.entities.ParsedFile;
 import org.library.common.utils.FileParser;
+import org.library.common.utils.HashType;
+import org.library.common.utils.HashingInputStream;
+import org.library.common.utils.ObjectPool;
+import org.library.common.utils.ParseProfile;
 
+import javax.xml.parsers.SAXParser;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
 
 public class ParseFileService {
     private static final Logger LOGGER = LogManager.getLogger(ParseFileService.class);
+    private static final int HASHED_READ_BUFFER_SIZE = 64 * 1024;
+
+    private final ParseProfile parseProfile;
+    private final CoverStore coverStore;
+    private final boolean headerTree;
+    private final ObjectPool<SAXParser> saxParserPool;
 
     public ParseFileService() {
+        this(ParseProfile.FULL);
+    }
+
+    public ParseFileService(ParseProfile parseProfile) {
+        this(parseProfile, null);
+    }
+
+    /**
+     * @param parseProfile parts of the document to be parsed
+     * @param coverStore   store for covers, covers are kept in parsed file if null
+     */
+    public ParseFileService(ParseProfile parseProfile, CoverStore coverStore) {
+        this(parseProfile, coverStore, true);
+    }
+
+    /**
+     * @param parseProfile parts of the document to be parsed
+     * @param coverStore   store for covers, covers are kept in parsed file if null
+     * @param headerTree   keep header tree in parsed file, book info is filled anyway
+     */
+    public ParseFileService(ParseProfile parseProfile, CoverStore coverStore, boolean headerTree) {
+        this(parseProfile, coverStore, headerTree, null);
+    }
+
+    /**
+     * @param saxParserPool pool of SAX parsers shared by virtual threads, parser of the thread is used if null
+     */
+    public ParseFileService(ParseProfile parseProfile, CoverStore coverStore, boolean headerTree,
+                            ObjectPool<SAXParser> saxParserPool) {
+        this.parseProfile = parseProfile;
+        this.coverStore = coverStore;
+        this.headerTree = headerTree;
+        this.saxParserPool = saxParserPool;
+    }
+
+    /**
+     * Service with the same settings which takes SAX parsers from the pool
+     */
+    public ParseFileService withSaxParserPool(ObjectPool<SAXParser> saxParserPool) {
+        return new ParseFileService(parseProfile, coverStore, headerTree, saxParserPool);
+    }
+
+    public ParseProfile getParseProfile() {
+        return parseProfile;
     }
 
     public ParsedFile fileInfoToParsedFile(FileInfo fileInfo) {
@@ -24,39 +83,50 @@ public class ParseFileService {
         return parsedFile;
     }
 
+    /**
+     * Parse the file, book info is extracted in the same pass
+     */
     public void parseFile(Path basePath, ParsedFile parsedFile) {
-        if (parseFileInt(basePath, parsedFile)) {
-            parsedFile.setState(ParsedFile.ProcessState.XMLProcessed);
+        FileParser parser = createParser(parsedFile);
+        if (parser != null && parser.parseFile(basePath, parsedFile)) {
+            parsedFile.setState(ParsedFile.ProcessState.BookInfoProcessed);
         }
     }
 
-    private boolean parseFileInt(Path basePath, ParsedFile parsedFile) {
-        boolean result = false;
-        try {
-            FileParser parser = FileParser.createHandler(parsedFile.getFileInfo().getFileType());
-            result = parser.parseFile(basePath, parsedFile);
-        } catch (IllegalArgumentException ex) {
-            parsedFile.addException(ex);
-            LOGGER.error("Cannot parseFile file " + parsedFile.getFileInfo().getPath());
+    /**
+     * Parse the file and calculate its hash from the same read, hash is set to the file info
+     * If parsing stops before the end of the file then the rest is read for the hash only
+     *
+     * @param hashType algorithm of the hash
+     * @throws IOException if file cannot be read
+     */
+    public void parseFile(Path basePath, ParsedFile parsedFile, HashType hashType) throws IOException {
+        Path filePath = basePath.resolve(parsedFile.getFileInfo().getPath());
+        try (InputStream inputStream = new BufferedInputStream(Files.newInputStream(filePath), HASHED_READ_BUFFER_SIZE)) {
+            HashingInputStream hashingInputStream = new HashingInputStream(inputStream, hashType);
+            parseStream(hashingInputStream, parsedFile);
+            parsedFile.getFileInfo().setMd5Hash(hashingInputStream.finish());
         }
-        return result;
     }
 
-    public void parseInfo(ParsedFile parsedFile) {
-        if (parseFileInfoInt(parsedFile)) {
+    /**
+     * Parse the content read from the stream, e.g. entry of an archive
+     */
+    public void parseStream(InputStream inputStream, ParsedFile parsedFile) {
+        FileParser parser = createParser(parsedFile);
+        if (parser != null && parser.parseStream(inputStream, parsedFile)) {
             parsedFile.setState(ParsedFile.ProcessState.BookInfoProcessed);
         }
     }
 
-    private boolean parseFileInfoInt(ParsedFile parsedFile) {
-        boolean result = false;
+    private FileParser createParser(ParsedFile parsedFile) {
         try {
-            FileParser parser = FileParser.createHandler(parsedFile.getFileInfo().getFileType());
-            result = parser.parseFileData(parsedFile);
+            return FileParser.createHandler(parsedFile.getFileInfo().getFileType(), parseProfile, coverStore, headerTree,
+                    saxParserPool);
         } catch (IllegalArgumentException ex) {
             parsedFile.addException(ex);
-            LOGGER.error("Cannot parseFileInfo for " + parsedFile.getFileInfo().getPath());
+            LOGGER.error("Cannot parseFile file " + parsedFile.getFileInfo().getPath());
         }
-        return result;
+        return null;
     }
 }
@@ -0,0 +1,78 @@
+package org.library.common.utils;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.library.common.entities.FileInfo;
+
+import java.io.IOException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Files packed into archives
+ * File in the archive is identified by the relative path of the archive and the entry name joined by the separator,
+ * entries are read from the archive directly, nothing is extracted to disk
+ */
+public class ArchiveFiles {
+    private static final Logger LOGGER = LogManager.getLogger(ArchiveFiles.class);
+    public static final String ENTRY_SEPARATOR = "!/";
+
+    public static String constructEntryPath(String archivePath, String entryName) {
+        return archivePath + ENTRY_SEPARATOR + entryName;
+    }
+
+    public static boolean isEntryPath(String path) {
+        return path.contains(ENTRY_SEPARATOR);
+    }
+
+    public static String getArchivePath(String entryPath) {
+        return entryPath.substring(0, entryPath.indexOf(ENTRY_SEPARATOR));
+    }
+
+    public static String getEntryName(String entryPath) {
+        return entryPath.substring(entryPath.indexOf(ENTRY_SEPARATOR) + ENTRY_SEPARATOR.length());
+    }
+
+    /**
+     * File info of the supported files packed into the archive
+     * Only the archive directory is read, size and modified date are taken from it
+     *
+     * @param basePath    library path
+     * @param archivePath relative path of the archive
+     * @return list of file info in the order of the archive directory
+     * @throws IOException
+     */
+    public static List<FileInfo> getEntriesFileInfo(Path basePath, String archivePath) throws IOException {
+        List<FileInfo> result = new ArrayList<>();
+        try (ZipFile zipFile = new ZipFile(basePath.resolve(archivePath).toFile())) {
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                if (entry.isDirectory()) {
+                    continue;
+                }
+                FileInfo fileInfo;
+                try {
+                    fileInfo = new FileInfo(constructEntryPath(archivePath, entry.getName()));
+                } catch (InvalidPathException e) {
+                    LOGGER.warn("Entry " + entry.getName() + " of " + archivePath + " is skipped: " + e.getMessage());
+                    continue;
+                }
+                if (fileInfo.getFileType() == null || fileInfo.getFileType().isArchive()) {
+                    continue;
+                }
+                fileInfo.setFileSize(entry.getSize());
+                if (entry.getLastModifiedTime() != null) {
+                    fileInfo.setModifiedDate(FileUtils.fileTimeToLocalDateTime(entry.getLastModifiedTime()));
+                }
+                result.add(fileInfo);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,68 @@
+package org.library.common.utils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Incremental MIME Base64 decoder for text received in chunks (e.g. SAX characters)
+ * Characters outside of the Base64 alphabet are ignored, decoding stops at the first padding character
+ */
+class Base64CharDecoder {
+    private static final int[] DECODE_TABLE = new int[128];
+
+    static {
+        Arrays.fill(DECODE_TABLE, -1);
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+        for (int i = 0; i < alphabet.length(); i++) {
+            DECODE_TABLE[alphabet.charAt(i)] = i;
+        }
+    }
+
+    private final OutputStream out;
+    private int quantum;
+    private int quantumLength;
+    private boolean isPadded;
+
+    Base64CharDecoder(OutputStream out) {
+        this.out = out;
+    }
+
+    void write(char[] ch, int start, int length) throws IOException {
+        for (int i = start; i < start + length && !isPadded; i++) {
+            char c = ch[i];
+            if (c == '=') {
+                isPadded = true;
+                break;
+            }
+            int value = c < DECODE_TABLE.length ? DECODE_TABLE[c] : -1;
+            if (value < 0) {
+                continue;
+            }
+            quantum = (quantum << 6) | value;
+            if (++quantumLength == 4) {
+                out.write(quantum >> 16);
+                out.write(quantum >> 8);
+                out.write(quantum);
+                quantum = 0;
+                quantumLength = 0;
+            }
+        }
+    }
+
+    /**
+     * Write the rest of incomplete quantum
+     */
+    void finish() throws IOException {
+        if (quantumLength == 2) {
+            out.write(quantum >> 4);
+        } else if (quantumLength == 3) {
+            out.write(quantum >> 10);
+            out.write(quantum >> 2);
+        } else if (quantumLength == 1) {
+            throw new IOException("Invalid Base64 data: single trailing character");
+        }
+        quantum = 0;
+        quantumLength = 0;
+    }
+}
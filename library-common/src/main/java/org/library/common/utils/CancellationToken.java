@@ -0,0 +1,69 @@
+package org.library.common.utils;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Cooperative cancellation of a long operation
+ * Workers check the token between files and stop taking new work, file in progress is finished,
+ * callbacks registered by the operation release its resources (e.g. drop queued tasks) at the moment of cancel
+ */
+public class CancellationToken {
+    private static final Logger LOGGER = LogManager.getLogger(CancellationToken.class);
+
+    private final List<Runnable> callbacks = new ArrayList<>();
+    private volatile boolean cancelled;
+
+    public void cancel() {
+        List<Runnable> toRun;
+        synchronized (callbacks) {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            toRun = new ArrayList<>(callbacks);
+            callbacks.clear();
+        }
+        for (Runnable callback : toRun) {
+            try {
+                callback.run();
+            } catch (RuntimeException e) {
+                LOGGER.error("Cancel callback error", e);
+            }
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Stop the caller, e.g. a consumer of the walk or of the database read
+     *
+     * @throws CancellationException if the token is cancelled
+     */
+    public void throwIfCancelled() {
+        if (cancelled) {
+            throw new CancellationException();
+        }
+    }
+
+    /**
+     * Register callback called on cancel, it is called at once if the token is already cancelled
+     *
+     * @param callback callback, should not block
+     */
+    public void onCancel(Runnable callback) {
+        synchronized (callbacks) {
+            if (!cancelled) {
+                callbacks.add(callback);
+                return;
+            }
+        }
+        callback.run();
+    }
+}
@@ -0,0 +1,336 @@
+package org.library.common.utils;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.CRC32;
+
+/**
+ * Durable feed of the library changes kept in the library folder
+ * Core refresh appends changes of every commit as one batch, parser reads them from the offset it has stored
+ * Batch is written with its length and checksum under the file lock and is forced to disk,
+ * torn batch of an interrupted write is cut off before the next append and is never returned to the reader
+ * Feed id is written in the header: offset is valid only for the feed with the same id,
+ * reader should process the whole library if the feed was recreated
+ * Feed is recreated with a new id when a batch cannot be appended, so readers never skip lost changes,
+ * and when it grows over the max size instead of being compacted
+ */
+public class ChangeFeed {
+    private static final Logger LOGGER = LogManager.getLogger(ChangeFeed.class);
+    public static final String FEED_FILE_NAME = ".library.changes";
+    private static final int MAGIC = 0x4C434846;
+    private static final int HEADER_SIZE = Integer.BYTES + Long.BYTES;
+    private static final int BATCH_HEADER_SIZE = Integer.BYTES + Long.BYTES;
+    private static final Random RANDOM = new Random();
+
+    private final Path feedPath;
+    private final long maxSize;
+    private long validatedOffset;
+    private boolean invalidationPending;
+
+    /**
+     * Feed for reading, it is not recreated by size
+     */
+    public ChangeFeed(Path libraryPath) {
+        this(libraryPath, 0);
+    }
+
+    /**
+     * @param maxSize size of the feed in bytes which is not exceeded by the append, 0 for unlimited feed
+     */
+    public ChangeFeed(Path libraryPath, long maxSize) {
+        this.feedPath = libraryPath.resolve(FEED_FILE_NAME);
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Append the batch of changes, feed is created on the first append
+     * Feed is invalidated if the batch cannot be appended
+     *
+     * @param changes changes of one commit
+     * @throws IOException
+     */
+    public synchronized void append(List<Change> changes) throws IOException {
+        if (changes.isEmpty()) {
+            return;
+        }
+        if (invalidationPending) {
+            invalidate();
+        }
+        try {
+            appendBatch(changes);
+        } catch (IOException e) {
+            try {
+                invalidate();
+            } catch (IOException ex) {
+                e.addSuppressed(ex);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Recreate the feed with a new id, so readers process the whole library instead of skipping lost changes
+     * Feed is deleted if it cannot be rewritten, failed invalidation is retried by the next append
+     *
+     * @throws IOException if the feed is neither rewritten nor deleted
+     */
+    public synchronized void invalidate() throws IOException {
+        invalidationPending = true;
+        try (FileChannel channel = FileChannel.open(feedPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             FileLock ignored = channel.lock()) {
+            writeHeader(channel);
+            channel.force(false);
+        } catch (IOException e) {
+            LOGGER.error("Cannot recreate change feed " + feedPath + ", it is deleted", e);
+            Files.deleteIfExists(feedPath);
+            validatedOffset = 0;
+        }
+        invalidationPending = false;
+        LOGGER.warn("Change feed is invalidated " + feedPath);
+    }
+
+    /**
+     * @return false if the feed was not invalidated after a failed append
+     */
+    public synchronized boolean isValid() {
+        return !invalidationPending;
+    }
+
+    private void appendBatch(List<Change> changes) throws IOException {
+        byte[] payload = encode(changes);
+        CRC32 crc32 = new CRC32();
+        crc32.update(payload);
+        ByteBuffer buffer = ByteBuffer.allocate(BATCH_HEADER_SIZE + payload.length);
+        buffer.putInt(payload.length).putLong(crc32.getValue()).put(payload).flip();
+        try (FileChannel channel = FileChannel.open(feedPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+             FileLock ignored = channel.lock()) {
+            if (channel.size() < HEADER_SIZE) {
+                writeHeader(channel);
+            }
+            long end = findValidEnd(channel, Math.max(validatedOffset, HEADER_SIZE));
+            if (end < channel.size()) {
+                LOGGER.warn("Cutting off torn batch of " + feedPath + " at " + end);
+                channel.truncate(end);
+            }
+            if (maxSize > 0 && end > HEADER_SIZE && end + buffer.remaining() > maxSize) {
+                LOGGER.info("Change feed is recreated, size limit is reached " + feedPath);
+                writeHeader(channel);
+                end = HEADER_SIZE;
+            }
+            channel.position(end);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+            validatedOffset = channel.position();
+        }
+    }
+
+    /**
+     * Read changes appended after the offset
+     * Incomplete batch at the end is not read, it is returned by the next read after it is written completely
+     *
+     * @param offset offset returned by the previous read, 0 to read from the start
+     * @return changes and offset to continue reading from, no changes if feed doesn't exist
+     * @throws IOException
+     */
+    public Changes read(long offset) throws IOException {
+        if (!Files.exists(feedPath)) {
+            return new Changes(0, Collections.emptyList(), offset);
+        }
+        try (FileChannel channel = FileChannel.open(feedPath, StandardOpenOption.READ);
+             FileLock ignored = channel.lock(0, Long.MAX_VALUE, true)) {
+            if (channel.size() < HEADER_SIZE) {
+                return new Changes(0, Collections.emptyList(), offset);
+            }
+            long feedId = readFeedId(channel);
+            List<Change> changes = new ArrayList<>();
+            long position = Math.max(offset, HEADER_SIZE);
+            byte[] payload;
+            while ((payload = readBatch(channel, position)) != null) {
+                changes.addAll(decode(payload));
+                position += BATCH_HEADER_SIZE + payload.length;
+            }
+            return new Changes(feedId, changes, position);
+        }
+    }
+
+    /**
+     * Offset of the end of the feed, changes appended later are read from it
+     *
+     * @return feed id and offset without changes, feed id is 0 if feed doesn't exist
+     * @throws IOException
+     */
+    public Changes readEnd() throws IOException {
+        if (!Files.exists(feedPath)) {
+            return new Changes(0, Collections.emptyList(), 0);
+        }
+        try (FileChannel channel = FileChannel.open(feedPath, StandardOpenOption.READ);
+             FileLock ignored = channel.lock(0, Long.MAX_VALUE, true)) {
+            if (channel.size() < HEADER_SIZE) {
+                return new Changes(0, Collections.emptyList(), 0);
+            }
+            return new Changes(readFeedId(channel), Collections.emptyList(), findValidEnd(channel, HEADER_SIZE));
+        }
+    }
+
+    private void writeHeader(FileChannel channel) throws IOException {
+        channel.truncate(0);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putLong(RANDOM.nextLong() & Long.MAX_VALUE).flip();
+        channel.write(header, 0);
+        validatedOffset = HEADER_SIZE;
+    }
+
+    private long readFeedId(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(channel, header, 0);
+        header.flip();
+        if (header.getInt() != MAGIC) {
+            throw new IOException("Not a change feed: " + feedPath);
+        }
+        return header.getLong();
+    }
+
+    /**
+     * End of the last complete batch
+     *
+     * @param position start of a batch known to be valid, e.g. end of the batch appended last by this instance
+     */
+    private static long findValidEnd(FileChannel channel, long position) throws IOException {
+        byte[] payload;
+        while ((payload = readBatch(channel, position)) != null) {
+            position += BATCH_HEADER_SIZE + payload.length;
+        }
+        return position;
+    }
+
+    /**
+     * @return payload of the batch or null if there is no complete batch at the position
+     */
+    private static byte[] readBatch(FileChannel channel, long position) throws IOException {
+        if (channel.size() - position < BATCH_HEADER_SIZE) {
+            return null;
+        }
+        ByteBuffer header = ByteBuffer.allocate(BATCH_HEADER_SIZE);
+        readFully(channel, header, position);
+        header.flip();
+        int length = header.getInt();
+        long checksum = header.getLong();
+        if (length < 0 || channel.size() - position - BATCH_HEADER_SIZE < length) {
+            return null;
+        }
+        ByteBuffer payload = ByteBuffer.allocate(length);
+        readFully(channel, payload, position + BATCH_HEADER_SIZE);
+        CRC32 crc32 = new CRC32();
+        crc32.update(payload.array());
+        return crc32.getValue() == checksum ? payload.array() : null;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) == -1) {
+                throw new EOFException();
+            }
+        }
+    }
+
+    private static byte[] encode(List<Change> changes) throws IOException {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(result)) {
+            output.writeInt(changes.size());
+            for (Change change : changes) {
+                output.writeByte(change.getChangeType().ordinal());
+                output.writeUTF(change.getPath());
+            }
+        }
+        return result.toByteArray();
+    }
+
+    private static List<Change> decode(byte[] payload) throws IOException {
+        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(payload))) {
+            int count = input.readInt();
+            List<Change> result = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                ChangeType changeType = ChangeType.values()[input.readByte()];
+                result.add(new Change(changeType, input.readUTF()));
+            }
+            return result;
+        }
+    }
+
+    public enum ChangeType {
+        INSERT, UPDATE, DELETE
+    }
+
+    public static class Change {
+        private final ChangeType changeType;
+        private final String path;
+
+        public Change(ChangeType changeType, String path) {
+            this.changeType = changeType;
+            this.path = path;
+        }
+
+        public ChangeType getChangeType() {
+            return changeType;
+        }
+
+        /**
+         * Path relative to the library
+         */
+        public String getPath() {
+            return path;
+        }
+
+        @Override
+        public String toString() {
+            return "Change{" +
+                    "changeType=" + changeType +
+                    ", path='" + path + '\'' +
+                    '}';
+        }
+    }
+
+    public static class Changes {
+        private final long feedId;
+        private final List<Change> changes;
+        private final long offset;
+
+        Changes(long feedId, List<Change> changes, long offset) {
+            this.feedId = feedId;
+            this.changes = changes;
+            this.offset = offset;
+        }
+
+        /**
+         * Id of the feed, 0 if feed doesn't exist
+         */
+        public long getFeedId() {
+            return feedId;
+        }
+
+        public List<Change> getChanges() {
+            return changes;
+        }
+
+        /**
+         * Offset to continue reading from
+         */
+        public long getOffset() {
+            return offset;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package org.library.common.utils;
+
+import org.library.common.entities.BookInfo;
+import org.xml.sax.Attributes;
+
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Fills book info from SAX events of the FB2 header (description) in one pass
+ * Only the first title-info is used, its direct children are mapped to book info fields:
+ * - book-title, lang, src-lang, date, annotation: first occurrence
+ * - genre (with match attribute), sequence (name and number attributes): all occurrences
+ * Element texts are trimmed and joined, annotation text is taken with all nested elements
+ * Events are expected for the elements inside the description only
+ */
+class Fb2BookInfoExtractor {
+    private static final String TAG_ELEMENT_TITLE_INFO = "title-info";
+    private static final String TAG_ELEMENT_SEQUENCE = "sequence";
+    private static final String TAG_ELEMENT_GENRE_MATCH = "match";
+    private static final String TAG_ELEMENT_SEQUENCE_NAME = "name";
+    private static final String TAG_ELEMENT_SEQUENCE_NUMBER = "number";
+    private static final int FULL_GENRE_MATCH = 100;
+
+    private static final int currentYear = LocalDateTime.now().getYear();
+
+    private enum Field {
+        TITLE("book-title"), LANGUAGE("lang"), SOURCE_LANGUAGE("src-lang"), DATE("date"),
+        ANNOTATION("annotation"), GENRE("genre");
+
+        private final String elementTag;
+
+        Field(String elementTag) {
+            this.elementTag = elementTag;
+        }
+
+        static Field getFieldByTag(String tag) {
+            for (Field field : values()) {
+                if (field.elementTag.equalsIgnoreCase(tag)) {
+                    return field;
+                }
+            }
+            return null;
+        }
+    }
+
+    private final BookInfo bookInfo;
+    private final Set<Field> found = EnumSet.noneOf(Field.class);
+    private final StringBuilder fieldText = new StringBuilder();
+    private final Map<String, Integer> genres = new HashMap<>();
+    private final Map<String, Integer> sequences = new HashMap<>();
+    private int depth;
+    private int titleInfoDepth = -1;
+    private boolean isTitleInfoDone;
+    private Field field;
+    private int fieldDepth;
+    private String genreMatch;
+    private String title;
+    private String language;
+    private String sourceLanguage;
+    private String annotation;
+    private Integer year;
+
+    Fb2BookInfoExtractor(BookInfo bookInfo) {
+        this.bookInfo = bookInfo;
+    }
+
+    void startElement(String name, Attributes attributes) {
+        depth++;
+        if (titleInfoDepth < 0) {
+            if (!isTitleInfoDone && TAG_ELEMENT_TITLE_INFO.equalsIgnoreCase(name)) {
+                titleInfoDepth = depth;
+            }
+            return;
+        }
+        if (field != null) {
+            if (field == Field.ANNOTATION && ParsedFiles.isNewLineTag(name) && fieldText.length() > 0) {
+                fieldText.append(System.lineSeparator());
+            }
+            return;
+        }
+        if (depth != titleInfoDepth + 1) {
+            return;
+        }
+        if (TAG_ELEMENT_SEQUENCE.equalsIgnoreCase(name)) {
+            sequences.put(attributes.getValue(TAG_ELEMENT_SEQUENCE_NAME),
+                    stringToNumber(attributes.getValue(TAG_ELEMENT_SEQUENCE_NUMBER), null));
+            return;
+        }
+        Field startedField = Field.getFieldByTag(name);
+        if (startedField != null && (startedField == Field.GENRE || !found.contains(startedField))) {
+            field = startedField;
+            fieldDepth = depth;
+            fieldText.setLength(0);
+            genreMatch = attributes.getValue(TAG_ELEMENT_GENRE_MATCH);
+        }
+    }
+
+    void text(String value) {
+        if (field == Field.ANNOTATION) {
+            fieldText.append(value);
+        } else if (field != null && depth == fieldDepth) {
+            fieldText.append(value.trim());
+        }
+    }
+
+    void endElement() {
+        if (field != null && depth == fieldDepth) {
+            completeField();
+            field = null;
+        } else if (depth == titleInfoDepth) {
+            completeTitleInfo();
+            titleInfoDepth = -1;
+            isTitleInfoDone = true;
+        }
+        depth--;
+    }
+
+    private void completeField() {
+        String value = fieldText.toString();
+        found.add(field);
+        switch (field) {
+            case TITLE:
+                title = value;
+                break;
+            case LANGUAGE:
+                language = value;
+                break;
+            case SOURCE_LANGUAGE:
+                sourceLanguage = value;
+                break;
+            case DATE:
+                year = parseYear(value);
+                break;
+            case ANNOTATION:
+                annotation = value;
+                break;
+            case GENRE:
+                genres.put(value, stringToNumber(genreMatch, 0));
+                break;
+        }
+    }
+
+    private void completeTitleInfo() {
+        if (genres.size() == 1) {
+            genres.put(genres.keySet().iterator().next(), FULL_GENRE_MATCH);
+        }
+        bookInfo
+                .setTitle(title)
+                .setLanguage(language)
+                .setSourceLanguage(sourceLanguage == null ? language : sourceLanguage)
+                .setGenres(genres.isEmpty() ? null : genres)
+                .setSequences(sequences.isEmpty() ? null : sequences)
+                .setAnnotation(annotation)
+                .setYear(year);
+    }
+
+    private Integer parseYear(String value) {
+        Integer result = stringToNumber(value, null);
+        if (result != null && result <= currentYear + 1) {
+            return result;
+        }
+        return null;
+    }
+
+    private static Integer stringToNumber(String stringValue, Integer defaultValue) {
+        try {
+            return Integer.parseInt(stringValue);
+        } catch (NumberFormatException ex) {
+            return defaultValue;
+        }
+    }
+}
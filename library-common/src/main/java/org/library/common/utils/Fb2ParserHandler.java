@@ -1,12 +1,14 @@
 package org.library.common.utils;
 
-import java.util.Base64;
-
 import org.library.common.entities.ParsedFile;
+import org.library.common.services.CoverStore;
 import org.xml.sax.Attributes;
 import org.xml.sax.SAXException;
 import org.xml.sax.helpers.DefaultHandler;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Arrays;
 import java.util.List;
 
@@ -22,7 +24,13 @@ import static org.library.common.utils.ParseStage.*;
  * Every sections may have 0-n Titles
  * - count of notes
  * - count of comments
- * - cover name, cover type, cover bytes (should we decode them?)
+ * - cover name, cover type, cover bytes
+ * Cover is decoded while it is read, into the cover store if it is given (only reference is kept)
+ * or into cover bytes otherwise
+ * - book info, extracted from the header events without the tree
+ * Header tree is optional, it's not built if only book info is needed
+ * Parse profile limits the parts to be read, ParseCompletedException is thrown to stop the parser
+ * as soon as the last requested part is finished
  * Limitations:
  * - notes and comments don't any validation for empty or head sections
  * - section titles doesn't support strip or resolve links to notes/comments
@@ -39,6 +47,10 @@ class Fb2ParserHandler extends DefaultHandler {
     private static final String TAG_IMAGE = "image";
 
     private final ParsedFile parsedFile;
+    private final ParseProfile parseProfile;
+    private final CoverStore coverStore;
+    private final boolean headerTree;
+    private final Fb2BookInfoExtractor bookInfoExtractor;
     private ParseStage stage = ParseStage.None;
     private boolean isHead = false;
     private boolean isBody = false;
@@ -54,11 +66,21 @@ class Fb2ParserHandler extends DefaultHandler {
     private ParsedFile.Element currentElement;
     private ParsedFile.Section currentSection;
     private boolean isSectionTitle;
-    private StringBuilder cover = new StringBuilder();
+    private final StringBuilder text = new StringBuilder();
+    private OutputStream coverOutput;
+    private Base64CharDecoder coverDecoder;
     private String nameSpace;
 
     Fb2ParserHandler(ParsedFile parsedFile) {
+        this(parsedFile, ParseProfile.FULL, null, true);
+    }
+
+    Fb2ParserHandler(ParsedFile parsedFile, ParseProfile parseProfile, CoverStore coverStore, boolean headerTree) {
         this.parsedFile = parsedFile;
+        this.parseProfile = parseProfile;
+        this.coverStore = coverStore;
+        this.headerTree = headerTree;
+        this.bookInfoExtractor = new Fb2BookInfoExtractor(parsedFile.getBookInfo());
     }
 
     @Override
@@ -75,6 +97,7 @@ class Fb2ParserHandler extends DefaultHandler {
 
     @Override
     public void startElement(String uri, String localName, String qName, Attributes attributes) throws SAXException {
+        flushText();
         currentTag = qName;
         switch (stage) {
             case None:
@@ -87,9 +110,11 @@ class Fb2ParserHandler extends DefaultHandler {
                 if (qName.equalsIgnoreCase(ParseStage.Head.getElementTag())) {
                     if (!isHead) {
                         setStage(Head);
-                        currentElement = new ParsedFile.TagElement("header");
-                        parsedFile.setHeader(currentElement);
-                        proceedAttributes(currentElement, attributes);
+                        if (headerTree) {
+                            currentElement = new ParsedFile.TagElement("header");
+                            parsedFile.setHeader(currentElement);
+                            proceedAttributes(currentElement, attributes);
+                        }
                         isHead = true;
                     } else {
                         return;
@@ -125,6 +150,7 @@ class Fb2ParserHandler extends DefaultHandler {
                             setStage(Binary);
                             coverType = attributes.getValue(TAG_IMAGE_CONTENT_TYPE);
                             isCover = true;
+                            openCover();
                         }
                     } else {
                         return;
@@ -133,9 +159,14 @@ class Fb2ParserHandler extends DefaultHandler {
                 break;
             }
             case Head: {
-                currentElement = ParsedFiles.addTagElement(currentElement, qName);
-                proceedAttributes(currentElement, attributes);
-                isCoverExists = isCoverExists || checkIsCover(currentElement);
+                if (headerTree) {
+                    currentElement = ParsedFiles.addTagElement(currentElement, qName);
+                    proceedAttributes(currentElement, attributes);
+                }
+                bookInfoExtractor.startElement(qName, attributes);
+                if (!isCoverExists && qName.equalsIgnoreCase(TAG_IMAGE)) {
+                    isCoverExists = checkIsCover(qName, getAttribute(attributes, TAG_IMAGE_LINK));
+                }
                 break;
             }
             case Body: {
@@ -171,6 +202,7 @@ class Fb2ParserHandler extends DefaultHandler {
 
     @Override
     public void endElement(String uri, String localName, String qName) throws SAXException {
+        flushText();
         currentTag = null;
         switch (stage) {
             case Started:
@@ -183,13 +215,22 @@ class Fb2ParserHandler extends DefaultHandler {
             case Head:
                 if (qName.equalsIgnoreCase(ParseStage.Head.getElementTag())) {
                     setStage(Started);
+                    if (parseProfile == ParseProfile.HEADER_ONLY) {
+                        throw new ParseCompletedException();
+                    }
                 } else {
-                    currentElement = currentElement.getParent();
+                    if (headerTree) {
+                        currentElement = currentElement.getParent();
+                    }
+                    bookInfoExtractor.endElement();
                 }
                 break;
             case Body:
                 if (qName.equalsIgnoreCase(ParseStage.Body.getElementTag())) {
                     setStage(Started);
+                    if (parseProfile == ParseProfile.HEADER_AND_TOC) {
+                        throw new ParseCompletedException();
+                    }
                 } else if (qName.equalsIgnoreCase(TAG_SECTION_TITLE)) {
                     isSectionTitle = false;
                 } else if (qName.equalsIgnoreCase(TAG_SECTION)) {
@@ -210,7 +251,7 @@ class Fb2ParserHandler extends DefaultHandler {
                 break;
             case Binary:
                 setStage(Started);
-                parsedFile.setCoverInfo(coverName, coverType, Base64.getMimeDecoder().decode(cover.toString()));
+                finishCover();
                 break;
         }
         super.endElement(uri, localName, qName);
@@ -218,28 +259,112 @@ class Fb2ParserHandler extends DefaultHandler {
 
     @Override
     public void characters(char[] ch, int start, int length) throws SAXException {
-        String value;
         switch (stage) {
             case Head:
-                value = String.valueOf(Arrays.copyOfRange(ch, start, start + length));
-                if (value != null && !value.trim().isEmpty()) {
-                    ParsedFiles.addTextElement(currentElement, value);
-                }
+                appendText(ch, start, length);
                 break;
             case Body:
                 if (isSectionTitle && currentTag != null && !currentTag.equalsIgnoreCase(TAG_SECTION_TITLE)) {
-                    value = String.valueOf(Arrays.copyOfRange(ch, start, start + length));
-                    if (value != null && !value.trim().isEmpty()) {
-                        currentSection.setTitle(value);
-                    }
+                    appendText(ch, start, length);
                 }
                 break;
             case Binary:
-                cover.append(String.valueOf(Arrays.copyOfRange(ch, start, start + length)));
+                try {
+                    coverDecoder.write(ch, start, length);
+                } catch (IOException e) {
+                    throw new SAXException("Cannot write cover " + coverName, e);
+                }
         }
         super.characters(ch, start, length);
     }
 
+    /**
+     * Collect adjacent chunks of the text, leading whitespace only chunks are skipped without copying
+     */
+    private void appendText(char[] ch, int start, int length) {
+        if (text.length() == 0 && isBlank(ch, start, length)) {
+            return;
+        }
+        text.append(ch, start, length);
+    }
+
+    /**
+     * Turn collected text into the element text or the section title
+     * Called before any element starts or ends, so the text belongs to the current element
+     */
+    private void flushText() {
+        if (text.length() == 0) {
+            return;
+        }
+        if (!isBlank(text)) {
+            String value = text.toString();
+            if (stage == Head) {
+                if (headerTree) {
+                    ParsedFiles.addTextElement(currentElement, value);
+                }
+                bookInfoExtractor.text(value);
+            } else if (stage == Body) {
+                currentSection.setTitle(value);
+            }
+        }
+        text.setLength(0);
+    }
+
+    private static boolean isBlank(char[] ch, int start, int length) {
+        for (int i = start; i < start + length; i++) {
+            if (!Character.isWhitespace(ch[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isBlank(CharSequence value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (!Character.isWhitespace(value.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void openCover() throws SAXException {
+        try {
+            coverOutput = coverStore != null ? coverStore.create() : new ByteArrayOutputStream();
+        } catch (IOException e) {
+            throw new SAXException("Cannot create cover " + coverName, e);
+        }
+        coverDecoder = new Base64CharDecoder(coverOutput);
+    }
+
+    private void finishCover() throws SAXException {
+        try {
+            coverDecoder.finish();
+            if (coverOutput instanceof CoverStore.CoverOutput) {
+                CoverStore.CoverOutput output = (CoverStore.CoverOutput) coverOutput;
+                String reference = output.commit();
+                parsedFile.setCoverReference(coverName, coverType, reference, output.getSize());
+            } else {
+                parsedFile.setCoverInfo(coverName, coverType, ((ByteArrayOutputStream) coverOutput).toByteArray());
+            }
+        } catch (IOException e) {
+            throw new SAXException("Cannot write cover " + coverName, e);
+        } finally {
+            discardCover();
+        }
+    }
+
+    /**
+     * Release the cover output, data of not committed cover is deleted (e.g. when parsing failed)
+     */
+    void discardCover() {
+        if (coverOutput instanceof CoverStore.CoverOutput) {
+            ((CoverStore.CoverOutput) coverOutput).discard();
+        }
+        coverOutput = null;
+        coverDecoder = null;
+    }
+
     private boolean isTitleNewLine(String tag) {
         return newLineTitles.contains(tag.toLowerCase());
     }
@@ -257,8 +382,14 @@ class Fb2ParserHandler extends DefaultHandler {
     }
 
     boolean checkIsCover(ParsedFile.Element currentElement) {
-        if (currentElement.getName().equalsIgnoreCase(TAG_IMAGE)) {
-            String temp = ((ParsedFile.TagElement) currentElement).getAttribute(TAG_IMAGE_LINK);
+        String link = currentElement instanceof ParsedFile.TagElement
+                ? ((ParsedFile.TagElement) currentElement).getAttribute(TAG_IMAGE_LINK) : null;
+        return checkIsCover(currentElement.getName(), link);
+    }
+
+    private boolean checkIsCover(String name, String link) {
+        if (name.equalsIgnoreCase(TAG_IMAGE)) {
+            String temp = link;
             if (temp != null && temp.length() > 0) {
                 if (temp.substring(0, 1).equals("#")) {
                     temp = temp.substring(1);
@@ -278,6 +409,15 @@ class Fb2ParserHandler extends DefaultHandler {
         }
     }
 
+    private String getAttribute(Attributes attributes, String name) {
+        for (int i = 0; i < attributes.getLength(); i++) {
+            if (normalizeAttributeName(attributes.getQName(i)).equals(name)) {
+                return attributes.getValue(i);
+            }
+        }
+        return null;
+    }
+
     private String normalizeAttributeName(String qName) {
         if (nameSpace != null) {
             int i = qName.indexOf(nameSpace + ":");
@@ -296,6 +436,20 @@ class Fb2ParserHandler extends DefaultHandler {
         return coverName;
     }
 
+    /**
+     * Thrown to abort parsing when all the parts requested by the profile are read
+     */
+    static class ParseCompletedException extends SAXException {
+        ParseCompletedException() {
+            super("Parse completed");
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+
 }
 
 enum ParseStage {
@@ -0,0 +1,299 @@
+package org.library.common.utils;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.library.common.entities.FileInfo;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Persistent cache of file fingerprints kept in the library folder
+ * Stored fingerprint is returned while relative path, size and modified date of the file are the same,
+ * so a file is read once for the core refresh and the parser of the library
+ * Records are appended to the cache file under the file lock, the latest record of the path wins,
+ * the file is compacted on open when most of its records are outdated
+ * Torn record of an interrupted append is cut off before the next append, so later records stay readable
+ * Cache is only a shortcut: records which cannot be read or written are skipped with a warning
+ */
+public class FileHashCache implements Closeable {
+    private static final Logger LOGGER = LogManager.getLogger(FileHashCache.class);
+    public static final String CACHE_FILE_NAME = ".library.hashes";
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = Integer.BYTES;
+    private static final int FLUSH_SIZE = 64 * 1024;
+    private static final int COMPACT_MIN_RECORDS = 1000;
+    private static final int COMPACT_RATIO = 2;
+
+    private final Path cachePath;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private final DataOutputStream pendingOutput = new DataOutputStream(pending);
+    // end of the last complete record known to this instance, 0 if the header was not validated
+    private long validatedOffset;
+
+    private FileHashCache(Path cachePath) {
+        this.cachePath = cachePath;
+    }
+
+    /**
+     * Load cache of the library
+     *
+     * @param libraryPath library folder
+     * @return cache, empty one if it was not stored yet
+     */
+    public static FileHashCache open(Path libraryPath) {
+        FileHashCache result = new FileHashCache(libraryPath.resolve(CACHE_FILE_NAME));
+        int recordsCount = result.load();
+        if (recordsCount > COMPACT_MIN_RECORDS && recordsCount > COMPACT_RATIO * result.entries.size()) {
+            result.compact();
+        }
+        return result;
+    }
+
+    /**
+     * Fingerprint of the file, file is read only if there is no stored one for its size and modified date
+     *
+     * @param filePath file path
+     * @param fileInfo file info with relative path, size and modified date
+     * @param hashType algorithm
+     * @return fingerprint
+     * @throws IOException
+     */
+    public String hash(Path filePath, FileInfo fileInfo, HashType hashType) throws IOException {
+        String result = get(fileInfo, hashType);
+        if (result == null) {
+            result = FileHasher.hash(filePath, hashType);
+            put(fileInfo, hashType, result);
+        }
+        return result;
+    }
+
+    public String get(FileInfo fileInfo, HashType hashType) {
+        if (fileInfo.getFileSize() == null || fileInfo.getModifiedDate() == null) {
+            return null;
+        }
+        Entry entry = entries.get(getKey(fileInfo.getPath(), hashType));
+        if (entry != null && entry.size == fileInfo.getFileSize() && entry.modified.equals(fileInfo.getModifiedDate().toString())) {
+            return entry.hash;
+        }
+        return null;
+    }
+
+    public void put(FileInfo fileInfo, HashType hashType, String hash) {
+        if (fileInfo.getFileSize() == null || fileInfo.getModifiedDate() == null) {
+            return;
+        }
+        String key = getKey(fileInfo.getPath(), hashType);
+        Entry entry = new Entry(fileInfo.getFileSize(), fileInfo.getModifiedDate().toString(), hash);
+        entries.put(key, entry);
+        synchronized (this) {
+            try {
+                writeRecord(pendingOutput, key, entry);
+            } catch (IOException e) {
+                LOGGER.warn("Cannot add hash cache record " + key, e);
+            }
+            if (pending.size() >= FLUSH_SIZE) {
+                flush();
+            }
+        }
+    }
+
+    /**
+     * Append added records to the cache file
+     */
+    public synchronized void flush() {
+        if (pending.size() == 0) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(cachePath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+             FileLock ignored = channel.lock()) {
+            long end = findValidEnd(channel);
+            if (end < channel.size()) {
+                LOGGER.warn("Cutting off torn record of " + cachePath + " at " + end);
+                channel.truncate(end);
+            }
+            if (end == 0) {
+                channel.write(ByteBuffer.allocate(HEADER_SIZE).putInt(0, VERSION), 0);
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(pending.toByteArray());
+            channel.position(channel.size());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            validatedOffset = channel.position();
+        } catch (IOException e) {
+            LOGGER.warn("Cannot write hash cache " + cachePath, e);
+        }
+        pending.reset();
+    }
+
+    @Override
+    public void close() {
+        flush();
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return count of records read, outdated ones included
+     */
+    private int load() {
+        int result = 0;
+        if (!Files.exists(cachePath)) {
+            return result;
+        }
+        try (CountingInputStream counting = new CountingInputStream(new BufferedInputStream(Files.newInputStream(cachePath)));
+             DataInputStream input = new DataInputStream(counting)) {
+            int version = input.readInt();
+            if (version != VERSION) {
+                LOGGER.warn("Unknown hash cache version " + version + ", cache is ignored: " + cachePath);
+                return result;
+            }
+            validatedOffset = counting.getCount();
+            while (true) {
+                String key = input.readUTF();
+                entries.put(key, readEntry(input));
+                validatedOffset = counting.getCount();
+                result++;
+            }
+        } catch (EOFException e) {
+            LOGGER.debug("Hash cache is loaded: " + entries.size());
+        } catch (IOException e) {
+            LOGGER.warn("Cannot read hash cache " + cachePath + ", " + entries.size() + " records are loaded", e);
+        }
+        return result;
+    }
+
+    /**
+     * End of the last complete record, records appended by other processes after the validated offset are checked
+     *
+     * @return end offset or 0 if the file has no valid header
+     */
+    private long findValidEnd(FileChannel channel) throws IOException {
+        long position = validatedOffset;
+        if (position < HEADER_SIZE || position > channel.size()) {
+            // header was not validated or the file was replaced by compaction of another process
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            if (channel.read(header, 0) < HEADER_SIZE || header.getInt(0) != VERSION) {
+                return 0;
+            }
+            position = HEADER_SIZE;
+        }
+        channel.position(position);
+        // stream is not closed: it would close the channel
+        CountingInputStream counting = new CountingInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+        DataInputStream input = new DataInputStream(counting);
+        long result = position;
+        try {
+            while (true) {
+                input.readUTF();
+                readEntry(input);
+                result = position + counting.getCount();
+            }
+        } catch (EOFException | UTFDataFormatException e) {
+            LOGGER.debug("Hash cache is valid up to " + result);
+        }
+        return result;
+    }
+
+    /**
+     * Rewrite the cache file with the latest records only
+     * Records appended by another process meanwhile can be lost, they are calculated again
+     */
+    private void compact() {
+        LOGGER.info("Compacting hash cache " + cachePath);
+        Path tempPath = Paths.get(cachePath.toString() + ".tmp");
+        try {
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempPath)))) {
+                output.writeInt(VERSION);
+                for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                    writeRecord(output, entry.getKey(), entry.getValue());
+                }
+            }
+            Files.move(tempPath, cachePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            validatedOffset = Files.size(cachePath);
+        } catch (IOException e) {
+            LOGGER.warn("Cannot compact hash cache " + cachePath, e);
+        }
+    }
+
+    private static void writeRecord(DataOutputStream output, String key, Entry entry) throws IOException {
+        output.writeUTF(key);
+        output.writeLong(entry.size);
+        output.writeUTF(entry.modified);
+        output.writeUTF(entry.hash);
+    }
+
+    private static Entry readEntry(DataInputStream input) throws IOException {
+        return new Entry(input.readLong(), input.readUTF(), input.readUTF());
+    }
+
+    private static String getKey(String path, HashType hashType) {
+        return hashType.getName() + ":" + path;
+    }
+
+    /**
+     * Count of bytes read, to find the end of the last complete record
+     */
+    private static class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        long getCount() {
+            return count;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int result = super.read();
+            if (result != -1) {
+                count++;
+            }
+            return result;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int result = super.read(b, off, len);
+            if (result > 0) {
+                count += result;
+            }
+            return result;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long result = super.skip(n);
+            count += result;
+            return result;
+        }
+    }
+
+    private static class Entry {
+        private final long size;
+        private final String modified;
+        private final String hash;
+
+        Entry(long size, String modified, String hash) {
+            this.size = size;
+            this.modified = modified;
+            this.hash = hash;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package org.library.common.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Fingerprint of the file content
+ * File is read through the channel by large chunks into a direct buffer reused by the thread,
+ * so there is no copy to the heap and no call per byte
+ * Memory mapping is not used: mapped file stays locked on Windows until the buffer is collected
+ */
+public class FileHasher {
+    static final int BUFFER_SIZE = 1024 * 1024;
+
+    private static final ThreadLocal<ByteBuffer> BUFFER =
+            ThreadLocal.withInitial(FileHasher::allocateBuffer);
+
+    /**
+     * Calculate fingerprint of the file
+     *
+     * @param path     file path
+     * @param hashType algorithm
+     * @return hex presentation of the fingerprint, prefixed for algorithms other than MD5
+     * @throws IOException
+     */
+    public static String hash(Path path, HashType hashType) throws IOException {
+        ByteBuffer buffer = BUFFER.get();
+        HashType.Hasher hasher = hashType.createHasher();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer.clear();
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                hasher.update(buffer);
+                buffer.clear();
+            }
+        }
+        return hasher.getHash();
+    }
+
+    private static ByteBuffer allocateBuffer() {
+        return ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
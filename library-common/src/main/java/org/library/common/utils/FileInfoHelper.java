@@ -4,6 +4,7 @@ import org.library.common.entities.FileInfo;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.security.NoSuchAlgorithmException;
 import java.time.LocalDateTime;
 import java.util.HashMap;
@@ -37,6 +38,16 @@ public class FileInfoHelper {
         }
     }
 
+    /**
+     * Set size and modified date from the attributes already read, no file system call is made
+     * @param fileInfo file info to update
+     * @param attributes attributes of the file
+     */
+    public static void updateFileInfo(FileInfo fileInfo, BasicFileAttributes attributes) {
+        fileInfo.setFileSize(attributes.size());
+        fileInfo.setModifiedDate(FileUtils.fileTimeToLocalDateTime(attributes.lastModifiedTime()));
+    }
+
     public static boolean checkFileInfoChanged(FileInfo fileInfo, Long fileSize, LocalDateTime fileDate) {
         return !(fileSize.equals(fileInfo.getFileSize()) && fileDate.equals(fileInfo.getModifiedDate()));
     }
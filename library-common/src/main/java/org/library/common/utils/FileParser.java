@@ -2,15 +2,31 @@ package org.library.common.utils;
 
 import org.library.common.entities.FileType;
 import org.library.common.entities.ParsedFile;
+import org.library.common.services.CoverStore;
 
+import javax.xml.parsers.SAXParser;
+import java.io.InputStream;
 import java.nio.file.Path;
 
 public interface FileParser {
 
     static FileParser createHandler(FileType fileType) {
+        return createHandler(fileType, ParseProfile.FULL);
+    }
+
+    static FileParser createHandler(FileType fileType, ParseProfile parseProfile) {
+        return createHandler(fileType, parseProfile, null, true);
+    }
+
+    static FileParser createHandler(FileType fileType, ParseProfile parseProfile, CoverStore coverStore, boolean headerTree) {
+        return createHandler(fileType, parseProfile, coverStore, headerTree, null);
+    }
+
+    static FileParser createHandler(FileType fileType, ParseProfile parseProfile, CoverStore coverStore, boolean headerTree,
+                                    ObjectPool<SAXParser> saxParserPool) {
         switch (fileType) {
             case FB2:
-                return new Fb2Parser();
+                return new Fb2Parser(parseProfile, coverStore, headerTree, saxParserPool);
             default:
                 throw new IllegalArgumentException("Given File Type is not supported: " + fileType);
         }
@@ -18,6 +34,9 @@ public interface FileParser {
 
     boolean parseFile(Path basePath, ParsedFile parsedFile);
 
-    boolean parseFileData(ParsedFile parsedFile);
+    /**
+     * Parse the content read from the stream, e.g. entry of an archive, stream is not closed
+     */
+    boolean parseStream(InputStream inputStream, ParsedFile parsedFile);
 
 }
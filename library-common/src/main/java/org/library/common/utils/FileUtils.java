@@ -4,25 +4,32 @@ import org.apache.commons.io.IOUtils;
 
 import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.net.URL;
 import java.nio.file.*;
 import java.nio.file.attribute.FileTime;
-import java.security.DigestInputStream;
-import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.*;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 public class FileUtils {
 
     private static final String FILE_SIZE_ATTRIBUTE = "basic:size";
 
+    /**
+     * Get files with given extensions sorted by path
+     * @param extensions list of extensions
+     * @param isRecursive should subdirectories also be walked
+     * @param path directory
+     * @return sorted list of files
+     */
     public static List<Path> getFilesList(List<String> extensions, boolean isRecursive, Path path) throws IOException {
-        DirectoryStream.Filter<Path> filter = createFilter(extensions, isRecursive);
-        return getFilesListEx(path, filter);
+        List<Path> result = Collections.synchronizedList(new ArrayList<>());
+        new FileWalker().walk(path, createExtensionsFilter(extensions), isRecursive, (file, attributes) -> result.add(file));
+        result.sort(null);
+        return result;
     }
 
     public static Long getFileSize(Path path) throws IOException {
@@ -42,17 +49,8 @@ public class FileUtils {
         return FileTime.from(localDateTime.atZone(ZoneId.systemDefault()).toInstant());
     }
 
-    @SuppressWarnings("StatementWithEmptyBody")
     public static String getFileMD5Hash(Path path) throws NoSuchAlgorithmException, IOException {
-        MessageDigest md = MessageDigest.getInstance("MD5");
-        try (InputStream is = Files.newInputStream(path);
-             DigestInputStream ignored = new DigestInputStream(is, md))
-        {
-            while (is.read() != -1)
-                ;
-        }
-        byte[] digest = md.digest();
-        return md5BytesToHex(digest);
+        return FileHasher.hash(path, HashType.MD5);
     }
 
     /**
@@ -60,7 +58,7 @@ public class FileUtils {
      * @param bytes array of bytes
      * @return hex presentation of bytes
      */
-    private static String md5BytesToHex(byte[] bytes) {
+    public static String bytesToHex(byte[] bytes) {
         StringBuilder hexString = new StringBuilder();
         for (Byte oneByte : bytes) {
             String hex = Integer.toHexString(0xff & oneByte);
@@ -70,30 +68,6 @@ public class FileUtils {
         return hexString.toString();
     }
 
-    /**
-     * Extract list of files by a given filter
-     * @param path current directory
-     * @param filter prepared directory stream filter
-     * @return collections of Path objects
-     */
-    private static List<Path> getFilesListEx(Path path, DirectoryStream.Filter<Path> filter) throws IOException {
-        List<Path> result = new ArrayList<>();
-        List<Path> folders = new ArrayList<>();
-        try (DirectoryStream<Path> stream = Files.newDirectoryStream(path, filter)) {
-            for (Path entry : stream) {
-                if (Files.isDirectory(entry)) {
-                    folders.add(entry);
-                } else {
-                    result.add(entry);
-                }
-            }
-        }
-        for (Path folder : folders) {
-            result.addAll(getFilesListEx(folder, filter));
-        }
-        return result;
-    }
-
     /**
      * Create a filter for files/directories: allowed/disallow recursive and allowed file extensions
      * @param extensions list of extensions
@@ -111,9 +85,24 @@ public class FileUtils {
                 Files.isDirectory(path) && isRecursive;
     }
 
+    /**
+     * Create a filter of files by extension, it doesn't touch the file system
+     * @param extensions list of extensions, "*" accepts any file
+     * @return ready to use filter of file paths
+     */
+    public static Predicate<Path> createExtensionsFilter(List<String> extensions) {
+        Set<String> filterPrepared =
+                extensions.stream()
+                    .map(entry -> removeTrailingPeriod(entry).toLowerCase())
+                    .collect(Collectors.toSet());
+        if (filterPrepared.contains("*")) {
+            return path -> true;
+        }
+        return path -> filterPrepared.contains(getPathExt(path).toLowerCase());
+    }
+
     public static void clearOldFiles(String extension, Path path, int maxCount) throws IOException {
-        DirectoryStream.Filter<Path> filter = createFilter(Arrays.asList(extension), false);
-        List<Path> files = getFilesListEx(path, filter);
+        List<Path> files = getFilesList(Arrays.asList(extension), false, path);
         files.sort((o1, o2) -> {
             try {
                 return -getFileLastModifiedDate(o1).compareTo(getFileLastModifiedDate(o2));
@@ -0,0 +1,113 @@
+package org.library.common.utils;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+
+/**
+ * Parallel walker of the directory tree
+ * Every directory is listed by its own fork join task, so sibling folders are read concurrently by idle workers
+ * Type, size and modified date of an entry are taken from one attributes read,
+ * directory listing on Windows already contains them, so no additional file system call is made there
+ * Files are passed to the consumer from the worker threads as soon as they are found, order is not defined
+ */
+public class FileWalker {
+    private static final Logger LOGGER = LogManager.getLogger(FileWalker.class);
+    public static final int DEFAULT_PARALLELISM = 8;
+
+    private final int parallelism;
+
+    public FileWalker() {
+        this(DEFAULT_PARALLELISM);
+    }
+
+    /**
+     * @param parallelism count of directories read at the same time, listing is blocking I/O,
+     *                    so it can be greater than count of processors for network storage
+     */
+    public FileWalker(int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism should be positive");
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Walk the directory and pass accepted files to the consumer
+     * Entries which attributes cannot be read are skipped, error of directory listing stops the walk
+     *
+     * @param path        root directory
+     * @param fileFilter  filter of files, directories are not passed to it
+     * @param isRecursive should subdirectories be walked
+     * @param consumer    thread safe consumer of files and their attributes
+     * @throws IOException
+     */
+    public void walk(Path path, Predicate<Path> fileFilter, boolean isRecursive,
+                     BiConsumer<Path, BasicFileAttributes> consumer) throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(new DirectoryTask(path, fileFilter, isRecursive, consumer));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static class DirectoryTask extends RecursiveAction {
+        private final Path directory;
+        private final Predicate<Path> fileFilter;
+        private final boolean isRecursive;
+        private final BiConsumer<Path, BasicFileAttributes> consumer;
+
+        DirectoryTask(Path directory, Predicate<Path> fileFilter, boolean isRecursive,
+                      BiConsumer<Path, BasicFileAttributes> consumer) {
+            this.directory = directory;
+            this.fileFilter = fileFilter;
+            this.isRecursive = isRecursive;
+            this.consumer = consumer;
+        }
+
+        @Override
+        protected void compute() {
+            List<DirectoryTask> subTasks = new ArrayList<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+                for (Path entry : stream) {
+                    BasicFileAttributes attributes;
+                    try {
+                        attributes = Files.readAttributes(entry, BasicFileAttributes.class);
+                    } catch (IOException e) {
+                        LOGGER.warn("Cannot read attributes of " + entry, e);
+                        continue;
+                    }
+                    if (attributes.isDirectory()) {
+                        if (isRecursive) {
+                            DirectoryTask subTask = new DirectoryTask(entry, fileFilter, isRecursive, consumer);
+                            subTask.fork();
+                            subTasks.add(subTask);
+                        }
+                    } else if (fileFilter.test(entry)) {
+                        consumer.accept(entry, attributes);
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            for (DirectoryTask subTask : subTasks) {
+                subTask.join();
+            }
+        }
+    }
+}
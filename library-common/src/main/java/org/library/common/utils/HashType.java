@@ -0,0 +1,176 @@
+package org.library.common.utils;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.Checksum;
+
+/**
+ * Algorithms of the file content fingerprint
+ * MD5 hash is kept as is, other fingerprints are prefixed by the algorithm name,
+ * so values calculated by different algorithms are never equal
+ */
+public enum HashType {
+    MD5("md5", ""),
+    /**
+     * Non cryptographic 64 bit hash, several times faster than MD5
+     */
+    XXHASH64("xxhash64", "xxh64:"),
+    /**
+     * Hardware accelerated CRC32C checksum, available since Java 9
+     */
+    CRC32C("crc32c", "crc32c:");
+
+    private static final String CRC32C_CLASS = "java.util.zip.CRC32C";
+    /**
+     * Project is compiled for Java 8, so CRC32C is looked up once at runtime, handles are null if it is not available
+     */
+    private static final MethodHandle CRC32C_CONSTRUCTOR;
+    private static final MethodHandle CRC32C_UPDATE;
+
+    static {
+        MethodHandle constructor = null;
+        MethodHandle update = null;
+        try {
+            Class<?> crc32cClass = Class.forName(CRC32C_CLASS);
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            constructor = lookup.findConstructor(crc32cClass, MethodType.methodType(void.class))
+                    .asType(MethodType.methodType(Checksum.class));
+            update = lookup.findVirtual(crc32cClass, "update", MethodType.methodType(void.class, ByteBuffer.class))
+                    .asType(MethodType.methodType(void.class, Checksum.class, ByteBuffer.class));
+        } catch (ReflectiveOperationException e) {
+            constructor = null;
+            update = null;
+        }
+        CRC32C_CONSTRUCTOR = constructor;
+        CRC32C_UPDATE = update;
+    }
+
+    private final String name;
+    private final String prefix;
+
+    HashType(String name, String prefix) {
+        this.name = name;
+        this.prefix = prefix;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isSupported() {
+        return this != CRC32C || CRC32C_UPDATE != null;
+    }
+
+    Hasher createHasher() {
+        switch (this) {
+            case XXHASH64:
+                return createXxHash64Hasher();
+            case CRC32C:
+                return createCrc32cHasher();
+            default:
+                return createMd5Hasher();
+        }
+    }
+
+    private Hasher createMd5Hasher() {
+        MessageDigest messageDigest;
+        try {
+            messageDigest = MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        return new Hasher() {
+            @Override
+            public void update(ByteBuffer buffer) {
+                messageDigest.update(buffer);
+            }
+
+            @Override
+            public String getHash() {
+                return prefix + FileUtils.bytesToHex(messageDigest.digest());
+            }
+        };
+    }
+
+    private Hasher createXxHash64Hasher() {
+        XxHash64 xxHash64 = new XxHash64();
+        return new Hasher() {
+            @Override
+            public void update(ByteBuffer buffer) {
+                xxHash64.update(buffer);
+            }
+
+            @Override
+            public String getHash() {
+                return prefix + String.format("%016x", xxHash64.getValue());
+            }
+        };
+    }
+
+    private Hasher createCrc32cHasher() {
+        if (CRC32C_CONSTRUCTOR == null) {
+            throw new UnsupportedOperationException("CRC32C is not supported by current JVM");
+        }
+        Checksum checksum;
+        try {
+            checksum = (Checksum) CRC32C_CONSTRUCTOR.invokeExact();
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+        return new Hasher() {
+            @Override
+            public void update(ByteBuffer buffer) {
+                try {
+                    CRC32C_UPDATE.invokeExact(checksum, buffer);
+                } catch (Throwable e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+
+            @Override
+            public String getHash() {
+                return prefix + String.format("%08x", checksum.getValue());
+            }
+        };
+    }
+
+    /**
+     * Algorithm which calculated the fingerprint, value without a known prefix is MD5 hash
+     *
+     * @param value fingerprint value
+     * @return hash type or null if value is null
+     */
+    public static HashType getHashTypeByValue(String value) {
+        if (value == null) {
+            return null;
+        }
+        for (HashType hashType : values()) {
+            if (!hashType.prefix.isEmpty() && value.startsWith(hashType.prefix)) {
+                return hashType;
+            }
+        }
+        return MD5;
+    }
+
+    public static HashType getHashTypeByName(String name) {
+        for (HashType hashType : values()) {
+            if (hashType.getName().equalsIgnoreCase(name)) {
+                return hashType;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Incremental calculation of the fingerprint
+     */
+    interface Hasher {
+        void update(ByteBuffer buffer);
+
+        String getHash();
+    }
+}
@@ -0,0 +1,90 @@
+package org.library.common.utils;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Stream which calculates fingerprint of the bytes read through it, so content is read once for the consumer and the hash
+ * Close doesn't close the underlying stream: consumer (e.g. SAX parser) may close it before the end,
+ * the rest is read by finish and the underlying stream is closed by its owner
+ */
+public class HashingInputStream extends FilterInputStream {
+    private static final int SKIP_BUFFER_SIZE = 8192;
+
+    private final HashType.Hasher hasher;
+    private final byte[] singleByte = new byte[1];
+    private boolean eof;
+
+    public HashingInputStream(InputStream in, HashType hashType) {
+        super(in);
+        this.hasher = hashType.createHasher();
+    }
+
+    @Override
+    public int read() throws IOException {
+        int result = read(singleByte, 0, 1);
+        return result == -1 ? -1 : singleByte[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (eof) {
+            return -1;
+        }
+        int result = in.read(b, off, len);
+        if (result == -1) {
+            eof = true;
+        } else if (result > 0) {
+            hasher.update(ByteBuffer.wrap(b, off, result));
+        }
+        return result;
+    }
+
+    /**
+     * Skipped bytes are read to be hashed
+     */
+    @Override
+    public long skip(long n) throws IOException {
+        byte[] buffer = new byte[(int) Math.min(n, SKIP_BUFFER_SIZE)];
+        long result = 0;
+        int count;
+        while (result < n && (count = read(buffer, 0, (int) Math.min(n - result, buffer.length))) != -1) {
+            result += count;
+        }
+        return result;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public void mark(int readlimit) {
+    }
+
+    @Override
+    public void reset() throws IOException {
+        throw new IOException("Mark is not supported");
+    }
+
+    @Override
+    public void close() {
+    }
+
+    /**
+     * Read the rest of the stream
+     *
+     * @return fingerprint of the whole content
+     * @throws IOException
+     */
+    public String finish() throws IOException {
+        byte[] buffer = new byte[SKIP_BUFFER_SIZE];
+        while (read(buffer, 0, buffer.length) != -1) {
+            // content is hashed by read
+        }
+        return hasher.getHash();
+    }
+}
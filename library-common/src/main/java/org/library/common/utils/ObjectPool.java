@@ -0,0 +1,45 @@
+package org.library.common.utils;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Bounded pool of reusable objects, replacement of thread locals for virtual threads
+ * Virtual thread is created per task, so object kept by the thread would be created for every file
+ * At most capacity objects are taken at once, caller waits for a released one when all of them are taken
+ *
+ * @param <T> type of the pooled objects
+ */
+public class ObjectPool<T> {
+    private final Semaphore permits;
+    private final Queue<T> idle = new ConcurrentLinkedQueue<>();
+
+    public ObjectPool(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Pool capacity should be positive: " + capacity);
+        }
+        this.permits = new Semaphore(capacity, true);
+    }
+
+    /**
+     * Take an object, caller should release it after use even if it has created a new one
+     *
+     * @return released object or null if caller should create a new one
+     * @throws InterruptedException
+     */
+    public T acquire() throws InterruptedException {
+        permits.acquire();
+        return idle.poll();
+    }
+
+    /**
+     * @param object object to reuse, null if it was not created
+     */
+    public void release(T object) {
+        if (object != null) {
+            idle.offer(object);
+        }
+        permits.release();
+    }
+}
@@ -0,0 +1,39 @@
+package org.library.common.utils;
+
+/**
+ * Parts of the document to be parsed
+ * Parsing is aborted as soon as all the requested parts are read
+ */
+public enum ParseProfile {
+    /**
+     * Header (description) only, enough for book info
+     */
+    HEADER_ONLY("header"),
+    /**
+     * Header and sections tree with titles of the main body
+     */
+    HEADER_AND_TOC("toc"),
+    /**
+     * Whole document including notes and comments counters and the cover
+     */
+    FULL("full");
+
+    private final String name;
+
+    ParseProfile(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public static ParseProfile getParseProfileByName(String name) {
+        for (ParseProfile parseProfile : values()) {
+            if (parseProfile.getName().equalsIgnoreCase(name)) {
+                return parseProfile;
+            }
+        }
+        return null;
+    }
+}
@@ -18,8 +18,66 @@ public class ParsedFiles {
         add("div");
     }};
 
+    private static final SAXParserFactory SAX_PARSER_FACTORY = SAXParserFactory.newInstance();
+    private static final ThreadLocal<SAXParser> THREAD_SAX_PARSER = new ThreadLocal<>();
+
     public static SAXParser getSaxParser() throws ParserConfigurationException, SAXException {
-        return SAXParserFactory.newInstance().newSAXParser();
+        // factory is not guaranteed to be thread safe
+        synchronized (SAX_PARSER_FACTORY) {
+            return SAX_PARSER_FACTORY.newSAXParser();
+        }
+    }
+
+    /**
+     * Parser confined to the current thread, created on the first call and reused afterwards
+     * Caller should reset the parser after parsing to restore its state and release the handler
+     *
+     * @return SAX parser of the current thread
+     */
+    public static SAXParser getThreadSaxParser() throws ParserConfigurationException, SAXException {
+        SAXParser result = THREAD_SAX_PARSER.get();
+        if (result == null) {
+            result = getSaxParser();
+            THREAD_SAX_PARSER.set(result);
+        }
+        return result;
+    }
+
+    /**
+     * Parser taken from the pool or parser of the current thread if there is no pool
+     * Pool is used by virtual threads: parser of the thread would be created for every file
+     * Caller should reset the parser after parsing and then release it by releaseSaxParser
+     *
+     * @param pool pool of parsers, null to use the parser of the thread
+     * @return SAX parser
+     */
+    public static SAXParser acquireSaxParser(ObjectPool<SAXParser> pool) throws ParserConfigurationException, SAXException {
+        if (pool == null) {
+            return getThreadSaxParser();
+        }
+        try {
+            SAXParser result = pool.acquire();
+            return result == null ? getSaxParser() : result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SAXException("Interrupted while waiting for parser");
+        } catch (ParserConfigurationException | SAXException | RuntimeException e) {
+            pool.release(null);
+            throw e;
+        }
+    }
+
+    /**
+     * Return parser taken by acquireSaxParser from the same pool
+     */
+    public static void releaseSaxParser(ObjectPool<SAXParser> pool, SAXParser parser) {
+        if (pool != null) {
+            pool.release(parser);
+        }
+    }
+
+    static boolean isNewLineTag(String name) {
+        return NEW_LINE_TAGS.contains(name);
     }
 
     public static ParsedFile.Element createTextElement(String text) {
@@ -81,7 +139,7 @@ public class ParsedFiles {
             if (element instanceof ParsedFile.TextElement) {
                 result.append(((ParsedFile.TextElement) element).getText());
             } else if (element instanceof ParsedFile.TagElement) {
-                if (NEW_LINE_TAGS.contains(element.getName()) && (result.length() > 0)) {
+                if (isNewLineTag(element.getName()) && (result.length() > 0)) {
                     result.append(System.lineSeparator());
                 }
                 result.append(elementDeepToString(element));
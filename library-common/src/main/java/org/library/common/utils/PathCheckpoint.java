@@ -0,0 +1,74 @@
+package org.library.common.utils;
+
+import java.util.Comparator;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+/**
+ * High-water mark of the work over paths which are started in the path order and completed in any order
+ * Cursor is exclusive: every path before it is completed, so a restarted run skips paths before the cursor
+ * Cursor is the first pending path or, if nothing is pending, the successor of the last started path
+ * State is guarded by an own lock, so callers can synchronize on the checkpoint to save cursors one by one
+ */
+public class PathCheckpoint {
+    private final Comparator<String> order;
+    private final NavigableSet<String> pending;
+    private final int checkpointSize;
+    private String lastStarted;
+    private int completedCount;
+
+    /**
+     * @param order          order of the paths
+     * @param checkpointSize count of completed paths between checkpoints, 0 means checkpoint is never due
+     */
+    public PathCheckpoint(Comparator<String> order, int checkpointSize) {
+        this.order = order;
+        this.pending = new TreeSet<>(order);
+        this.checkpointSize = checkpointSize;
+    }
+
+    /**
+     * Path should not be before the previous started one
+     */
+    public void start(String path) {
+        synchronized (pending) {
+            if (lastStarted != null && order.compare(lastStarted, path) > 0) {
+                throw new IllegalStateException("Path is started out of order: " + path + " after " + lastStarted);
+            }
+            pending.add(path);
+            lastStarted = path;
+        }
+    }
+
+    /**
+     * @return true if checkpoint is due: checkpointSize paths were completed since the last cursor was taken
+     */
+    public boolean complete(String path) {
+        synchronized (pending) {
+            pending.remove(path);
+            return checkpointSize > 0 && ++completedCount >= checkpointSize;
+        }
+    }
+
+    /**
+     * Cursor of the work completed so far, counter of completed paths is reset
+     *
+     * @return cursor or null if nothing was started
+     */
+    public String takeCursor() {
+        synchronized (pending) {
+            completedCount = 0;
+            if (!pending.isEmpty()) {
+                return pending.first();
+            }
+            return lastStarted == null ? null : successor(lastStarted);
+        }
+    }
+
+    /**
+     * The first string after the path in both code point and UTF-16 orders
+     */
+    public static String successor(String path) {
+        return path + '\u0000';
+    }
+}
@@ -3,13 +3,23 @@ package org.library.common.services;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.rules.TemporaryFolder;
+import org.library.common.entities.BookInfo;
 import org.library.common.entities.FileInfo;
 import org.library.common.entities.FileType;
 import org.library.common.entities.ParsedFile;
+import org.library.common.utils.FileHasher;
+import org.library.common.utils.HashType;
+import org.library.common.utils.ParseProfile;
+import org.library.common.utils.ParsedFiles;
 
 import java.io.File;
 import java.io.FileOutputStream;
 import java.net.URISyntaxException;
+import java.util.Base64;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 
@@ -28,6 +38,20 @@ public class ParseFileServiceTest {
         filePath = Paths.get(file.getAbsolutePath());
     }
 
+    @org.junit.Test
+    public void parseXmlWithHash() throws Exception {
+        for (ParseProfile parseProfile : ParseProfile.values()) {
+            ParseFileService parsedFileService = new ParseFileService(parseProfile);
+            ParsedFile parsedFile = new ParsedFile(new FileInfo(filePath.toString()));
+
+            parsedFileService.parseFile(filePath, parsedFile, HashType.MD5);
+
+            assertEquals(ParsedFile.ProcessState.BookInfoProcessed, parsedFile.getState());
+            // whole file is hashed even if parsing stops after the header
+            assertEquals(FileHasher.hash(filePath, HashType.MD5), parsedFile.getFileInfo().getMd5Hash());
+        }
+    }
+
     @org.junit.Test
     public void parseXml() throws Exception {
         ParseFileService parsedFileService = new ParseFileService();
@@ -47,4 +71,103 @@ public class ParseFileServiceTest {
         assertEquals(3, parsedFile.getCommentsCount());
     }
 
-}
\ No newline at end of file
+    @org.junit.Test
+    public void parseXmlHeaderOnly() throws Exception {
+        ParseFileService parsedFileService = new ParseFileService(ParseProfile.HEADER_ONLY);
+
+        FileInfo fileInfo = new FileInfo(filePath.toString());
+        ParsedFile parsedFile = new ParsedFile(fileInfo);
+
+        parsedFileService.parseFile(filePath, parsedFile);
+
+        assertEquals(ParsedFile.ProcessState.BookInfoProcessed, parsedFile.getState());
+        assertNotEquals(parsedFile.getHeader(), ParsedFile.Element.Empty);
+        assertEquals(parsedFile.getSection(), ParsedFile.Section.Empty);
+        assertNull(parsedFile.getCover().getBytes());
+        assertEquals(0, parsedFile.getNotesCount());
+    }
+
+    @org.junit.Test
+    public void parseXmlHeaderAndToc() throws Exception {
+        ParseFileService parsedFileService = new ParseFileService(ParseProfile.HEADER_AND_TOC);
+
+        FileInfo fileInfo = new FileInfo(filePath.toString());
+        ParsedFile parsedFile = new ParsedFile(fileInfo);
+
+        parsedFileService.parseFile(filePath, parsedFile);
+
+        assertEquals(ParsedFile.ProcessState.BookInfoProcessed, parsedFile.getState());
+        assertNotEquals(parsedFile.getHeader(), ParsedFile.Element.Empty);
+        assertNotEquals(parsedFile.getSection(), ParsedFile.Section.Empty);
+        assertNull(parsedFile.getCover().getBytes());
+        assertEquals(0, parsedFile.getNotesCount());
+    }
+
+    @org.junit.Test
+    public void parseXmlCoverStore() throws Exception {
+        CoverStore coverStore = new CoverStore(tempDir.newFolder("covers").toPath());
+        ParseFileService parsedFileService = new ParseFileService(ParseProfile.FULL, coverStore);
+
+        FileInfo fileInfo = new FileInfo(filePath.toString());
+        ParsedFile parsedFile = new ParsedFile(fileInfo);
+
+        parsedFileService.parseFile(filePath, parsedFile);
+
+        ParsedFile.Cover cover = parsedFile.getCover();
+        assertNull(cover.getBytes());
+        assertNotNull(cover.getReference());
+        assertEquals("cover.jpg", cover.getCoverName());
+        Path coverPath = coverStore.resolve(cover.getReference());
+        assertArrayEquals(readCover("cover.jpg"), Files.readAllBytes(coverPath));
+        assertEquals(Files.size(coverPath), cover.getSize());
+
+        ParsedFile parsedAgain = new ParsedFile(fileInfo);
+        parsedFileService.parseFile(filePath, parsedAgain);
+        assertEquals(cover.getReference(), parsedAgain.getCover().getReference());
+        assertEquals(1, Files.list(coverPath.getParent()).count());
+    }
+
+    @org.junit.Test
+    public void parseXmlCoverBytes() throws Exception {
+        ParseFileService parsedFileService = new ParseFileService();
+
+        ParsedFile parsedFile = new ParsedFile(new FileInfo(filePath.toString()));
+        parsedFileService.parseFile(filePath, parsedFile);
+
+        assertArrayEquals(readCover("cover.jpg"), parsedFile.getCover().getBytes());
+        assertNull(parsedFile.getCover().getReference());
+    }
+
+    private byte[] readCover(String id) throws Exception {
+        String content = new String(Files.readAllBytes(filePath), StandardCharsets.UTF_8);
+        Matcher matcher = Pattern.compile("<binary id=\"" + Pattern.quote(id) + "\"[^>]*>([^<]*)</binary>").matcher(content);
+        assertTrue(matcher.find());
+        return Base64.getMimeDecoder().decode(matcher.group(1));
+    }
+
+    @org.junit.Test
+    public void parseXmlBookInfoWithoutHeaderTree() throws Exception {
+        ParsedFile withTree = new ParsedFile(new FileInfo(filePath.toString()));
+        new ParseFileService(ParseProfile.HEADER_ONLY).parseFile(filePath, withTree);
+        ParsedFile withoutTree = new ParsedFile(new FileInfo(filePath.toString()));
+        new ParseFileService(ParseProfile.FULL, null, false).parseFile(filePath, withoutTree);
+
+        assertEquals(ParsedFile.ProcessState.BookInfoProcessed, withoutTree.getState());
+        assertEquals(ParsedFile.Element.Empty, withoutTree.getHeader());
+        assertEquals("cover.jpg", withoutTree.getCover().getCoverName());
+
+        ParsedFile.Element titleInfo = ParsedFiles.findElement(withTree.getHeader(), "title-info");
+        BookInfo bookInfo = withoutTree.getBookInfo();
+        assertEquals(ParsedFiles.elementText(ParsedFiles.findElement(titleInfo, "book-title"), ""), bookInfo.getTitle());
+        assertEquals("ru", bookInfo.getLanguage());
+        assertEquals("ru", bookInfo.getSourceLanguage());
+        assertEquals(ParsedFiles.elementDeepToString(ParsedFiles.findElement(titleInfo, "annotation")), bookInfo.getAnnotation());
+        assertEquals(2, bookInfo.getGenres().size());
+        assertEquals(Integer.valueOf(0), bookInfo.getGenres().get("sf"));
+        assertEquals(1, bookInfo.getSequences().size());
+        assertEquals(Integer.valueOf(1), bookInfo.getSequences().values().iterator().next());
+        assertNull(bookInfo.getYear());
+        assertEquals(bookInfo.getTitle(), withTree.getBookInfo().getTitle());
+    }
+
+}
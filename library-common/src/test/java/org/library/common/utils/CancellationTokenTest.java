@@ -0,0 +1,35 @@
+package org.library.common.utils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.*;
+
+public class CancellationTokenTest {
+
+    @Test
+    public void cancelRunsCallbacksOnce() throws Exception {
+        CancellationToken cancellationToken = new CancellationToken();
+        List<String> calls = new ArrayList<>();
+        cancellationToken.onCancel(() -> calls.add("registered"));
+        cancellationToken.throwIfCancelled();
+        assertFalse(cancellationToken.isCancelled());
+
+        cancellationToken.cancel();
+        cancellationToken.cancel();
+        assertTrue(cancellationToken.isCancelled());
+        assertEquals(asList("registered"), calls);
+        cancellationToken.onCancel(() -> calls.add("late"));
+        assertEquals(asList("registered", "late"), calls);
+        try {
+            cancellationToken.throwIfCancelled();
+            fail();
+        } catch (CancellationException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package org.library.common.utils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.*;
+
+public class ChangeFeedTest {
+    @Rule
+    public TemporaryFolder tempDir = new TemporaryFolder();
+
+    @Test
+    public void appendAndRead() throws Exception {
+        Path libraryPath = tempDir.getRoot().toPath();
+        ChangeFeed changeFeed = new ChangeFeed(libraryPath);
+        assertEquals(0, changeFeed.read(0).getFeedId());
+
+        changeFeed.append(asList(new ChangeFeed.Change(ChangeFeed.ChangeType.INSERT, "a.fb2"),
+                new ChangeFeed.Change(ChangeFeed.ChangeType.INSERT, "b.fb2")));
+        ChangeFeed.Changes first = changeFeed.read(0);
+        assertNotEquals(0, first.getFeedId());
+        assertEquals(2, first.getChanges().size());
+        assertEquals(first.getOffset(), changeFeed.readEnd().getOffset());
+
+        changeFeed.append(asList(new ChangeFeed.Change(ChangeFeed.ChangeType.DELETE, "a.fb2")));
+        ChangeFeed.Changes second = changeFeed.read(first.getOffset());
+        assertEquals(first.getFeedId(), second.getFeedId());
+        assertEquals(1, second.getChanges().size());
+        assertEquals(ChangeFeed.ChangeType.DELETE, second.getChanges().get(0).getChangeType());
+        assertEquals("a.fb2", second.getChanges().get(0).getPath());
+
+        // torn batch of an interrupted append is not read and is cut off by the next append
+        Path feedPath = libraryPath.resolve(ChangeFeed.FEED_FILE_NAME);
+        Files.write(feedPath, new byte[]{0, 0, 0, 100, 1, 2}, StandardOpenOption.APPEND);
+        assertTrue(changeFeed.read(second.getOffset()).getChanges().isEmpty());
+        assertEquals(second.getOffset(), changeFeed.read(second.getOffset()).getOffset());
+        new ChangeFeed(libraryPath).append(asList(new ChangeFeed.Change(ChangeFeed.ChangeType.UPDATE, "b.fb2")));
+        ChangeFeed.Changes third = changeFeed.read(second.getOffset());
+        assertEquals(1, third.getChanges().size());
+        assertEquals("b.fb2", third.getChanges().get(0).getPath());
+        assertEquals(4, changeFeed.read(0).getChanges().size());
+    }
+
+    @Test
+    public void invalidateRecreatesFeedWithNewId() throws Exception {
+        Path libraryPath = tempDir.getRoot().toPath();
+        ChangeFeed changeFeed = new ChangeFeed(libraryPath);
+        changeFeed.append(asList(new ChangeFeed.Change(ChangeFeed.ChangeType.INSERT, "a.fb2")));
+        ChangeFeed.Changes before = changeFeed.read(0);
+
+        changeFeed.invalidate();
+        assertTrue(changeFeed.isValid());
+        ChangeFeed.Changes after = changeFeed.read(0);
+        assertNotEquals(0, after.getFeedId());
+        assertNotEquals(before.getFeedId(), after.getFeedId());
+        assertTrue(after.getChanges().isEmpty());
+    }
+
+    @Test
+    public void feedIsRecreatedWhenMaxSizeIsReached() throws Exception {
+        Path libraryPath = tempDir.getRoot().toPath();
+        ChangeFeed changeFeed = new ChangeFeed(libraryPath, 64);
+        changeFeed.append(asList(new ChangeFeed.Change(ChangeFeed.ChangeType.INSERT, "first.fb2")));
+        ChangeFeed.Changes first = changeFeed.read(0);
+        changeFeed.append(asList(new ChangeFeed.Change(ChangeFeed.ChangeType.INSERT, "second.fb2")));
+        ChangeFeed.Changes second = changeFeed.read(0);
+
+        assertNotEquals(first.getFeedId(), second.getFeedId());
+        assertEquals(1, second.getChanges().size());
+        assertEquals("second.fb2", second.getChanges().get(0).getPath());
+        assertTrue(Files.size(libraryPath.resolve(ChangeFeed.FEED_FILE_NAME)) <= 64);
+    }
+}
@@ -0,0 +1,81 @@
+package org.library.common.utils;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.library.common.entities.FileInfo;
+import org.library.common.entities.ParsedFile;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Allocation of the FB2 parsing over a corpus of books
+ * One operation parses every FB2 file of the corpus folder once,
+ * divide gc.alloc.rate.norm by the corpus size logged on setup to get bytes allocated per MB parsed
+ * Run main from the IDE or pass -Dcorpus=path/to/folder to measure a real library
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Fb2ParserAllocationBenchmark {
+    private static final Logger LOGGER = LogManager.getLogger(Fb2ParserAllocationBenchmark.class);
+
+    @Param("src/test/resource")
+    public String corpus;
+
+    @Param({"HEADER_ONLY", "FULL"})
+    public ParseProfile parseProfile;
+
+    private Path basePath;
+    private List<String> files;
+    private Fb2Parser fb2Parser;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        basePath = Paths.get(corpus).toAbsolutePath();
+        try (Stream<Path> paths = Files.walk(basePath)) {
+            files = paths.filter(path -> path.toString().toLowerCase().endsWith(".fb2"))
+                    .map(path -> basePath.relativize(path).toString())
+                    .collect(Collectors.toList());
+        }
+        long size = 0;
+        for (String file : files) {
+            size += Files.size(basePath.resolve(file));
+        }
+        LOGGER.info(String.format("Corpus: %d files, %.3f MB", files.size(), size / 1024.0 / 1024.0));
+        fb2Parser = new Fb2Parser(parseProfile);
+    }
+
+    @Benchmark
+    public void parseCorpus(Blackhole blackhole) {
+        for (String file : files) {
+            ParsedFile parsedFile = new ParsedFile(new FileInfo(file));
+            blackhole.consume(fb2Parser.parseFile(basePath, parsedFile));
+            blackhole.consume(parsedFile);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(Fb2ParserAllocationBenchmark.class.getSimpleName())
+                .param("corpus", System.getProperty("corpus", "src/test/resource"))
+                .addProfiler(GCProfiler.class)
+                .build())
+                .run();
+    }
+}
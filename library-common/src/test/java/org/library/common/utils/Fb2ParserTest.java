@@ -0,0 +1,120 @@
+package org.library.common.utils;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.library.common.entities.FileInfo;
+import org.library.common.entities.ParsedFile;
+
+import javax.xml.parsers.SAXParser;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.*;
+
+public class Fb2ParserTest {
+    @Rule
+    public TemporaryFolder tempDir = new TemporaryFolder();
+
+    private Path basePath;
+    private String fileName;
+
+    @Before
+    public void setUp() {
+        ClassLoader classLoader = getClass().getClassLoader();
+        Path filePath = Paths.get(new File(classLoader.getResource("_Test.fb2").getFile()).getAbsolutePath());
+        basePath = filePath.getParent();
+        fileName = filePath.getFileName().toString();
+    }
+
+    @Test
+    public void parseFileReusesThreadParser() throws Exception {
+        Fb2Parser fb2Parser = new Fb2Parser();
+        ParsedFile first = new ParsedFile(new FileInfo(fileName));
+        ParsedFile second = new ParsedFile(new FileInfo(fileName));
+        assertTrue(fb2Parser.parseFile(basePath, first));
+        assertTrue(fb2Parser.parseFile(basePath, second));
+        assertSame(ParsedFiles.getThreadSaxParser(), ParsedFiles.getThreadSaxParser());
+        assertNotSame(ParsedFile.Element.Empty, second.getHeader());
+        assertEquals(ParsedFiles.elementDeepToString(first.getHeader()),
+                ParsedFiles.elementDeepToString(second.getHeader()));
+    }
+
+    @Test
+    public void parseFileReturnsParserToPool() throws Exception {
+        ObjectPool<SAXParser> pool = new ObjectPool<>(1);
+        Fb2Parser fb2Parser = new Fb2Parser(ParseProfile.HEADER_ONLY, null, true, pool);
+        assertTrue(fb2Parser.parseFile(basePath, new ParsedFile(new FileInfo(fileName))));
+        SAXParser pooled = pool.acquire();
+        assertNotNull(pooled);
+        assertNotSame(ParsedFiles.getThreadSaxParser(), pooled);
+        pool.release(pooled);
+        // single parser of the pool is reused, parse would wait if it was not released
+        assertTrue(fb2Parser.parseFile(basePath, new ParsedFile(new FileInfo(fileName))));
+    }
+
+    @Test
+    public void parseFileSharesElementNames() throws Exception {
+        Fb2Parser fb2Parser = new Fb2Parser(ParseProfile.HEADER_ONLY);
+        ParsedFile first = new ParsedFile(new FileInfo(fileName));
+        ParsedFile second = new ParsedFile(new FileInfo(fileName));
+        assertTrue(fb2Parser.parseFile(basePath, first));
+        assertTrue(fb2Parser.parseFile(basePath, second));
+        ParsedFile.Element firstGenre = ParsedFiles.findElement(first.getHeader(), "genre");
+        ParsedFile.Element secondGenre = ParsedFiles.findElement(second.getHeader(), "genre");
+        assertNotNull(firstGenre);
+        assertSame(firstGenre.getName(), secondGenre.getName());
+    }
+
+    @Test
+    public void parseArchiveEntry() throws Exception {
+        Path archivePath = tempDir.newFile("books.zip").toPath();
+        try (ZipOutputStream outputStream = new ZipOutputStream(Files.newOutputStream(archivePath))) {
+            outputStream.putNextEntry(new ZipEntry("books/"));
+            outputStream.putNextEntry(new ZipEntry("books/" + fileName));
+            Files.copy(basePath.resolve(fileName), outputStream);
+            outputStream.putNextEntry(new ZipEntry("readme.txt"));
+            outputStream.write("readme".getBytes());
+            outputStream.closeEntry();
+        }
+
+        List<FileInfo> entries = ArchiveFiles.getEntriesFileInfo(archivePath.getParent(), "books.zip");
+        assertEquals(1, entries.size());
+        String entryPath = entries.get(0).getPath();
+        assertEquals("books.zip!/books/" + fileName, entryPath);
+        assertEquals(Long.valueOf(Files.size(basePath.resolve(fileName))), entries.get(0).getFileSize());
+        assertEquals("books.zip", ArchiveFiles.getArchivePath(entryPath));
+
+        Fb2Parser fb2Parser = new Fb2Parser();
+        ParsedFile fromFile = new ParsedFile(new FileInfo(fileName));
+        ParsedFile fromEntry = new ParsedFile(entries.get(0));
+        assertTrue(fb2Parser.parseFile(basePath, fromFile));
+        try (ZipFile zipFile = new ZipFile(archivePath.toFile());
+             InputStream inputStream = zipFile.getInputStream(zipFile.getEntry(ArchiveFiles.getEntryName(entryPath)))) {
+            assertTrue(fb2Parser.parseStream(inputStream, fromEntry));
+        }
+        assertEquals(ParsedFiles.elementDeepToString(fromFile.getHeader()),
+                ParsedFiles.elementDeepToString(fromEntry.getHeader()));
+    }
+
+    @Test
+    public void tagElementAttributes() throws Exception {
+        ParsedFile.TagElement element = new ParsedFile.TagElement("sequence");
+        assertNull(element.getAttribute("name"));
+        assertFalse(element.iterator().hasNext());
+        element.addAttribute("name", "first");
+        element.addAttribute("number", "1");
+        element.addAttribute("name", "second");
+        assertEquals("second", element.getAttribute("name"));
+        assertEquals("1", element.getAttribute("number"));
+        assertEquals(2, element.getAttributes().size());
+    }
+}
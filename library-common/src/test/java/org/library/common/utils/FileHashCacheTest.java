@@ -0,0 +1,71 @@
+package org.library.common.utils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.library.common.entities.FileInfo;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+
+import static org.junit.Assert.*;
+
+public class FileHashCacheTest {
+    @Rule
+    public TemporaryFolder tempDir = new TemporaryFolder();
+
+    @Test
+    public void hashIsStoredInLibraryFolder() throws Exception {
+        Path libraryPath = tempDir.getRoot().toPath();
+        Path path = tempDir.newFile("cached.fb2").toPath();
+        Files.write(path, "cached content".getBytes(StandardCharsets.UTF_8));
+        FileInfo fileInfo = new FileInfo("cached.fb2");
+        FileInfoHelper.updateFileInfo(fileInfo, Files.readAttributes(path, BasicFileAttributes.class));
+        String expected = FileHasher.hash(path, HashType.MD5);
+
+        try (FileHashCache hashCache = FileHashCache.open(libraryPath)) {
+            assertNull(hashCache.get(fileInfo, HashType.MD5));
+            assertEquals(expected, hashCache.hash(path, fileInfo, HashType.MD5));
+        }
+        Files.delete(path);
+        try (FileHashCache hashCache = FileHashCache.open(libraryPath)) {
+            // file is not read for the same size and modified date
+            assertEquals(expected, hashCache.hash(path, fileInfo, HashType.MD5));
+            assertNull(hashCache.get(fileInfo, HashType.XXHASH64));
+            fileInfo.setFileSize(fileInfo.getFileSize() + 1);
+            assertNull(hashCache.get(fileInfo, HashType.MD5));
+        }
+    }
+
+    @Test
+    public void tornRecordIsCutOffBeforeAppend() throws Exception {
+        Path libraryPath = tempDir.getRoot().toPath();
+        FileInfo first = createFile("first.fb2", "first content");
+        FileInfo second = createFile("second.fb2", "second content");
+        try (FileHashCache hashCache = FileHashCache.open(libraryPath)) {
+            hashCache.hash(libraryPath.resolve("first.fb2"), first, HashType.MD5);
+        }
+        // interrupted append leaves a part of the record
+        Files.write(libraryPath.resolve(FileHashCache.CACHE_FILE_NAME), new byte[]{0, 20, 'm', 'd'}, StandardOpenOption.APPEND);
+        try (FileHashCache hashCache = FileHashCache.open(libraryPath)) {
+            assertNotNull(hashCache.get(first, HashType.MD5));
+            hashCache.hash(libraryPath.resolve("second.fb2"), second, HashType.MD5);
+        }
+        try (FileHashCache hashCache = FileHashCache.open(libraryPath)) {
+            assertEquals(2, hashCache.size());
+            assertNotNull(hashCache.get(first, HashType.MD5));
+            assertNotNull(hashCache.get(second, HashType.MD5));
+        }
+    }
+
+    private FileInfo createFile(String name, String content) throws Exception {
+        Path path = tempDir.newFile(name).toPath();
+        Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+        FileInfo result = new FileInfo(name);
+        FileInfoHelper.updateFileInfo(result, Files.readAttributes(path, BasicFileAttributes.class));
+        return result;
+    }
+}
@@ -0,0 +1,28 @@
+package org.library.common.utils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class FileHasherTest {
+    @Rule
+    public TemporaryFolder tempDir = new TemporaryFolder();
+
+    @Test
+    public void md5LargerThanBuffer() throws Exception {
+        byte[] bytes = new byte[FileHasher.BUFFER_SIZE * 2 + 17];
+        new Random(1).nextBytes(bytes);
+        Path path = tempDir.newFile("testLarge").toPath();
+        Files.write(path, bytes);
+        String expected = FileUtils.bytesToHex(MessageDigest.getInstance("MD5").digest(bytes));
+        assertEquals(expected, FileUtils.getFileMD5Hash(path));
+        assertEquals(expected, FileHasher.hash(path, HashType.MD5));
+    }
+}
@@ -0,0 +1,38 @@
+package org.library.common.utils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.*;
+
+public class FileWalkerTest {
+    @Rule
+    public TemporaryFolder tempDir = new TemporaryFolder();
+
+    @Test
+    public void walkFilesWithAttributes() throws Exception {
+        String ext = ".test";
+        Files.createDirectories(tempDir.getRoot().toPath().resolve("a/b/c"));
+        tempDir.newFolder("d");
+        Path path1 = Paths.get(tempDir.newFile("a/b/c/first" + ext).getAbsolutePath());
+        Path path2 = Paths.get(tempDir.newFile("d/second" + ext).getAbsolutePath());
+        tempDir.newFile("a/b/third.other");
+        Files.write(path1, "test".getBytes());
+        Map<Path, Long> result = new ConcurrentHashMap<>();
+
+        new FileWalker(2).walk(tempDir.getRoot().toPath(), FileUtils.createExtensionsFilter(asList(ext)), true,
+                (path, attributes) -> result.put(path, attributes.size()));
+
+        assertEquals(2, result.size());
+        assertEquals(Long.valueOf(4), result.get(path1));
+        assertEquals(Long.valueOf(0), result.get(path2));
+    }
+}
@@ -0,0 +1,47 @@
+package org.library.common.utils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class HashTypeTest {
+    @Rule
+    public TemporaryFolder tempDir = new TemporaryFolder();
+
+    @Test
+    public void xxHash64() throws Exception {
+        assertEquals("xxh64:ef46db3751d8e999", hashString("", HashType.XXHASH64));
+        assertEquals("xxh64:44bc2cf5ad770999", hashString("abc", HashType.XXHASH64));
+        assertEquals("xxh64:fbcea83c8a378bf1", hashString("Nobody inspects the spammish repetition", HashType.XXHASH64));
+    }
+
+    @Test
+    public void crc32c() throws Exception {
+        assumeTrue(HashType.CRC32C.isSupported());
+        assertEquals("crc32c:e3069283", hashString("123456789", HashType.CRC32C));
+    }
+
+    @Test
+    public void hashTypeByName() throws Exception {
+        assertEquals(HashType.XXHASH64, HashType.getHashTypeByName("XXHash64"));
+        assertNull(HashType.getHashTypeByName("sha1"));
+        assertEquals(HashType.CRC32C, HashType.getHashTypeByValue("crc32c:e3069283"));
+        assertEquals(HashType.XXHASH64, HashType.getHashTypeByValue("xxh64:ef46db3751d8e999"));
+        assertEquals(HashType.MD5, HashType.getHashTypeByValue("900150983cd24fb0d6963f7d28e17f72"));
+        assertEquals("900150983cd24fb0d6963f7d28e17f72", hashString("abc", HashType.MD5));
+    }
+
+    private String hashString(String value, HashType hashType) throws IOException {
+        Path path = tempDir.newFile().toPath();
+        Files.write(path, value.getBytes(StandardCharsets.UTF_8));
+        return FileHasher.hash(path, hashType);
+    }
+}
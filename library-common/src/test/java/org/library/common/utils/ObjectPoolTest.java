@@ -0,0 +1,48 @@
+package org.library.common.utils;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class ObjectPoolTest {
+
+    @Test
+    public void acquireReusesReleasedObject() throws Exception {
+        ObjectPool<StringBuilder> pool = new ObjectPool<>(1);
+        assertNull(pool.acquire());
+        StringBuilder object = new StringBuilder();
+        pool.release(object);
+        assertSame(object, pool.acquire());
+    }
+
+    @Test
+    public void acquireWaitsWhileAllObjectsAreTaken() throws Exception {
+        ObjectPool<StringBuilder> pool = new ObjectPool<>(1);
+        StringBuilder object = new StringBuilder();
+        assertNull(pool.acquire());
+        CountDownLatch acquired = new CountDownLatch(1);
+        AtomicReference<StringBuilder> result = new AtomicReference<>();
+        Thread thread = new Thread(() -> {
+            try {
+                result.set(pool.acquire());
+                acquired.countDown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        thread.start();
+        assertFalse(acquired.await(100, TimeUnit.MILLISECONDS));
+        pool.release(object);
+        assertTrue(acquired.await(5, TimeUnit.SECONDS));
+        assertSame(object, result.get());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void capacityShouldBePositive() {
+        new ObjectPool<>(0);
+    }
+}
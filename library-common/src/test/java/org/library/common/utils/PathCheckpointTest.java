@@ -0,0 +1,33 @@
+package org.library.common.utils;
+
+import org.junit.Test;
+
+import java.util.Comparator;
+
+import static org.junit.Assert.*;
+
+public class PathCheckpointTest {
+
+    @Test
+    public void cursorIsFirstPendingPath() throws Exception {
+        PathCheckpoint checkpoint = new PathCheckpoint(Comparator.naturalOrder(), 2);
+        assertNull(checkpoint.takeCursor());
+        checkpoint.start("a");
+        checkpoint.start("b");
+        checkpoint.start("c");
+        assertFalse(checkpoint.complete("b"));
+        assertTrue(checkpoint.complete("c"));
+        assertEquals("a", checkpoint.takeCursor());
+        assertFalse(checkpoint.complete("a"));
+        assertEquals(PathCheckpoint.successor("c"), checkpoint.takeCursor());
+        assertTrue("c".compareTo(PathCheckpoint.successor("c")) < 0);
+        assertTrue(PathCheckpoint.successor("c").compareTo("c0") < 0);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void startOutOfOrder() throws Exception {
+        PathCheckpoint checkpoint = new PathCheckpoint(Comparator.naturalOrder(), 2);
+        checkpoint.start("c");
+        checkpoint.start("b");
+    }
+}
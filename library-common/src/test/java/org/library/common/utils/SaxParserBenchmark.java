@@ -0,0 +1,79 @@
+package org.library.common.utils;
+
+import org.library.common.entities.FileInfo;
+import org.library.common.entities.ParsedFile;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per file overhead of SAX parser creation compared with the parser reused by the worker thread
+ * Run main from the IDE or pass -Dfile=path/to/book.fb2 to measure another file
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SaxParserBenchmark {
+
+    @Param("src/test/resource/_Test.fb2")
+    public String file;
+
+    private Path basePath;
+    private String fileName;
+    private Fb2Parser fb2Parser;
+
+    @Setup
+    public void setUp() {
+        Path path = Paths.get(file).toAbsolutePath();
+        basePath = path.getParent();
+        fileName = path.getFileName().toString();
+        fb2Parser = new Fb2Parser();
+    }
+
+    @Benchmark
+    public SAXParser createParser() throws Exception {
+        return SAXParserFactory.newInstance().newSAXParser();
+    }
+
+    @Benchmark
+    public SAXParser reuseParser() throws Exception {
+        SAXParser parser = ParsedFiles.getThreadSaxParser();
+        parser.reset();
+        return parser;
+    }
+
+    @Benchmark
+    public void parseWithNewParser(Blackhole blackhole) throws Exception {
+        ParsedFile parsedFile = new ParsedFile(new FileInfo(fileName));
+        File source = basePath.resolve(fileName).toFile();
+        SAXParserFactory.newInstance().newSAXParser().parse(source, new Fb2ParserHandler(parsedFile));
+        blackhole.consume(parsedFile);
+    }
+
+    @Benchmark
+    public void parseWithThreadParser(Blackhole blackhole) {
+        ParsedFile parsedFile = new ParsedFile(new FileInfo(fileName));
+        blackhole.consume(fb2Parser.parseFile(basePath, parsedFile));
+        blackhole.consume(parsedFile);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(SaxParserBenchmark.class.getSimpleName())
+                .param("file", System.getProperty("file", "src/test/resource/_Test.fb2"))
+                .build())
+                .run();
+    }
+}
@@ -23,8 +23,8 @@ public class WebApplication {
     }
 
     @Bean
-    public FileService fileService() {
-        return new FileServiceImpl();
+    public FileService fileService(@Value("${threads.walk.count:8}") int walkThreadsCount) {
+        return new FileServiceImpl(walkThreadsCount);
     }
 
 
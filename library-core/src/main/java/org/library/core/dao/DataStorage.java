@@ -3,11 +3,13 @@ package org.library.core.dao;
 
 import org.library.core.exceptions.LibraryDatabaseException;
 import org.library.common.entities.FileInfo;
+import org.library.entities.FileUpdateOperation;
 
 import java.nio.file.Path;
 import java.sql.SQLException;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 public interface DataStorage {
 
@@ -15,12 +17,39 @@ public interface DataStorage {
     void batchDeleteFileInfo(FileInfo fileInfo) throws LibraryDatabaseException;
     void batchInsertFileInfo(FileInfo fileInfo) throws LibraryDatabaseException;
 
+    /**
+     * Execute operations in batches within the prepared batch, success is set for every written operation
+     *
+     * @param operations operations in order of execution
+     */
+    void batchFileUpdateOperations(List<FileUpdateOperation> operations) throws LibraryDatabaseException;
+
+    /**
+     * @param batchSize max count of rows in one batch, 0 means operations are executed one by one
+     */
+    void setBatchSize(int batchSize);
+
+    int getBatchSize();
+
+    /**
+     * @return true if commits do not wait for readers, so changes can be committed while file info is read
+     */
+    boolean isCommitDuringReadSupported();
+
     void prepareBatch(boolean autoCommit) throws LibraryDatabaseException;
     void commit() throws LibraryDatabaseException;
     void rollback() throws LibraryDatabaseException;
 
     List<FileInfo> getFileInfoList() throws LibraryDatabaseException;
 
+    /**
+     * Pass every stored file info to the consumer while rows are read, nothing is collected
+     * File info is passed in the order of path
+     *
+     * @param consumer consumer of file info
+     */
+    void forEachFileInfo(Consumer<FileInfo> consumer) throws LibraryDatabaseException;
+
     void prepareDB() throws LibraryDatabaseException;
 
     void setDbPath(Path dbPath);
@@ -29,6 +58,11 @@ public interface DataStorage {
 
     void closeConnection();
 
+    /**
+     * Close all connections to the database, storage can be used again after
+     */
+    void close();
+
     int getFileInfoCount();
 
     Map<Fields, Object> getMeta();
@@ -40,7 +74,8 @@ public interface DataStorage {
     enum Fields {
         UUID_FIELD("f_uuid"), FILE_PATH_FIELD("f_file_path"), FILE_NAME_FIELD("f_file_name"),
         FILE_SIZE_FIELD("f_file_size"), FILE_DATE_FIELD("f_file_date"), FILE_MD5_FIELD("f_file_md5"),
-        LAST_UPDATED_FIELD("f_last_updated"), LAST_REFRESH_FIELD("f_last_refreshed");
+        LAST_UPDATED_FIELD("f_last_updated"), LAST_REFRESH_FIELD("f_last_refreshed"), HASH_TYPE_FIELD("f_hash_type"),
+        REFRESH_CURSOR_FIELD("f_refresh_cursor"), CHANGE_FEED_PENDING_FIELD("f_change_feed_pending");
 
         private final String dbFieldName;
 
@@ -2,11 +2,39 @@ package org.library.core.dao;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 @Component
 public class DataStorageFactory {
     private static final Logger LOGGER = LogManager.getLogger(DataStorageFactory.class);
+    private final SQLiteSettings sqliteSettings = new SQLiteSettings();
+
+    @Autowired
+    public void setSqliteJournalMode(@Value("${library.data.storage.sqlite.journal.mode:WAL}") String journalMode) {
+        sqliteSettings.setJournalMode(journalMode);
+    }
+
+    @Autowired
+    public void setSqliteSynchronous(@Value("${library.data.storage.sqlite.synchronous:NORMAL}") String synchronous) {
+        sqliteSettings.setSynchronous(synchronous);
+    }
+
+    @Autowired
+    public void setSqliteCacheSize(@Value("${library.data.storage.sqlite.cache.size:-16000}") int cacheSize) {
+        sqliteSettings.setCacheSize(cacheSize);
+    }
+
+    @Autowired
+    public void setSqliteBusyTimeout(@Value("${library.data.storage.sqlite.busy.timeout:5000}") int busyTimeout) {
+        sqliteSettings.setBusyTimeout(busyTimeout);
+    }
+
+    @Autowired
+    public void setSqliteMaxIdleReaders(@Value("${library.data.storage.sqlite.pool.readers:4}") int maxIdleReaders) {
+        sqliteSettings.setMaxIdleReaders(maxIdleReaders);
+    }
 
     public DataStorage createDataStorage(String name) {
         DataStorage dataStorage = null;
@@ -14,6 +42,9 @@ public class DataStorageFactory {
         if (dataStorageType != null) {
             try {
                 dataStorage = dataStorageType.getDataStorageClass().newInstance();
+                if (dataStorage instanceof DataStorageSQLite) {
+                    ((DataStorageSQLite) dataStorage).setSettings(sqliteSettings);
+                }
             } catch (InstantiationException | IllegalAccessException e) {
                 LOGGER.error("Cannot instantiate storage type " + name, e);
             }
@@ -6,6 +6,7 @@ import org.library.core.exceptions.LibraryDatabaseException;
 import org.library.core.utils.DateUtils;
 import org.library.common.utils.FileUtils;
 import org.library.common.entities.FileInfo;
+import org.library.entities.FileUpdateOperation;
 import org.springframework.stereotype.Repository;
 
 import java.io.IOException;
@@ -16,6 +17,7 @@ import java.nio.file.Paths;
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.function.Consumer;
 
 @Repository
 class DataStorageSQLite implements DataStorage {
@@ -24,9 +26,17 @@ class DataStorageSQLite implements DataStorage {
     static final String DB_NAME = ".db";
     static final String BACKUP_EXT = ".dbak";
     static final String DB_BACKUP_NAME = ".db_%d%02d%02d_%02d%02d%s";
+    static final int DEFAULT_BATCH_SIZE = 1000;
+    static final int FETCH_SIZE = 1000;
     private Path dbPath;
+    private int batchSize = DEFAULT_BATCH_SIZE;
 
+    private SQLiteSettings settings = new SQLiteSettings();
+    private volatile String journalMode;
+    private SQLiteConnectionPool connectionPool;
     private Connection connection;
+    private final Map<FileUpdateOperation.UpdateType, PreparedStatement> statements =
+            new EnumMap<>(FileUpdateOperation.UpdateType.class);
     static String insertFileInfoSQL;
     static String deleteFileInfoSQL;
     static String updateFileInfoSQL;
@@ -50,8 +60,9 @@ class DataStorageSQLite implements DataStorage {
                 .append(Fields.FILE_NAME_FIELD.getDbFieldName()).append(", ")
                 .append(Fields.FILE_SIZE_FIELD.getDbFieldName()).append(", ")
                 .append(Fields.FILE_DATE_FIELD.getDbFieldName()).append(", ")
+                .append(Fields.FILE_MD5_FIELD.getDbFieldName()).append(", ")
                 .append(Fields.LAST_UPDATED_FIELD.getDbFieldName()).append(")")
-                .append(" values (?, ?, ?, ?, ?, ?)").toString();
+                .append(" values (?, ?, ?, ?, ?, ?, ?)").toString();
         deleteFileInfoSQL = new StringBuilder("delete from ")
                 .append(FILES_TABLE_NAME).append(" where ")
                 .append(Fields.UUID_FIELD.getDbFieldName()).append(" = ?").toString();
@@ -61,6 +72,7 @@ class DataStorageSQLite implements DataStorage {
                 .append(Fields.FILE_NAME_FIELD.getDbFieldName()).append(" = ?, ")
                 .append(Fields.FILE_SIZE_FIELD.getDbFieldName()).append(" = ?, ")
                 .append(Fields.FILE_DATE_FIELD.getDbFieldName()).append(" = ?, ")
+                .append(Fields.FILE_MD5_FIELD.getDbFieldName()).append(" = ?, ")
                 .append(Fields.LAST_UPDATED_FIELD.getDbFieldName()).append(" = ? ")
                 .append(" where ")
                 .append(Fields.UUID_FIELD.getDbFieldName()).append(" = ?")
@@ -73,9 +85,12 @@ class DataStorageSQLite implements DataStorage {
                 .append(Fields.FILE_DATE_FIELD.getDbFieldName()).append(", ")
                 .append(Fields.FILE_MD5_FIELD.getDbFieldName()).append(", ")
                 .append(Fields.LAST_UPDATED_FIELD.getDbFieldName())
-                .append(" from ").append(FILES_TABLE_NAME).toString();
+                .append(" from ").append(FILES_TABLE_NAME)
+                .append(" order by ").append(Fields.FILE_PATH_FIELD.getDbFieldName()).toString();
         setMetaSQL = "UPDATE " + META_TABLE_NAME + " set %s = ?";
-        getMetaSQL = String.format("SELECT %s, %s FROM %s", Fields.LAST_UPDATED_FIELD.getDbFieldName(), Fields.LAST_REFRESH_FIELD.getDbFieldName(), META_TABLE_NAME);
+        getMetaSQL = String.format("SELECT %s, %s, %s, %s, %s FROM %s", Fields.LAST_UPDATED_FIELD.getDbFieldName(), Fields.LAST_REFRESH_FIELD.getDbFieldName(),
+                Fields.HASH_TYPE_FIELD.getDbFieldName(), Fields.REFRESH_CURSOR_FIELD.getDbFieldName(),
+                Fields.CHANGE_FEED_PENDING_FIELD.getDbFieldName(), META_TABLE_NAME);
         getFileInfoCountSQL = String.format("SELECT count() FROM %s", FILES_TABLE_NAME);
         clearFileInfoSQL = "delete from " + FILES_TABLE_NAME;
         getDBVersionSQL = "PRAGMA user_version";
@@ -84,13 +99,9 @@ class DataStorageSQLite implements DataStorage {
     @Override
     public void batchUpdateFileInfo(FileInfo fileInfo) throws LibraryDatabaseException {
         LOGGER.debug("Updating " + fileInfo);
-        try (PreparedStatement statement = connection.prepareStatement(updateFileInfoSQL)) {
-            statement.setString(6, fileInfo.getUUID().toString());
-            statement.setString(1, fileInfo.getPath());
-            statement.setString(2, fileInfo.getFileName());
-            statement.setLong(3, fileInfo.getFileSize());
-            statement.setString(4, DateUtils.localDateTimeToString(fileInfo.getModifiedDate()));
-            statement.setString(3, fileInfo.getMd5Hash());
+        try {
+            PreparedStatement statement = getStatement(FileUpdateOperation.UpdateType.UPDATE);
+            bindFileInfo(FileUpdateOperation.UpdateType.UPDATE, statement, fileInfo);
             int i = statement.executeUpdate();
             LOGGER.debug(String.format("Updated %d records", i));
         } catch (SQLException e) {
@@ -102,8 +113,9 @@ class DataStorageSQLite implements DataStorage {
     @Override
     public void batchDeleteFileInfo(FileInfo fileInfo) throws LibraryDatabaseException {
         LOGGER.debug("Deleting " + fileInfo);
-        try (PreparedStatement statement = connection.prepareStatement(deleteFileInfoSQL)) {
-            statement.setString(1, fileInfo.getUUID().toString());
+        try {
+            PreparedStatement statement = getStatement(FileUpdateOperation.UpdateType.DELETE);
+            bindFileInfo(FileUpdateOperation.UpdateType.DELETE, statement, fileInfo);
             int i = statement.executeUpdate();
             LOGGER.debug(String.format("Deleted %d records", i));
         } catch (SQLException e) {
@@ -115,13 +127,9 @@ class DataStorageSQLite implements DataStorage {
     @Override
     public void batchInsertFileInfo(FileInfo fileInfo) throws LibraryDatabaseException {
         LOGGER.debug("Inserting " + fileInfo);
-        try (PreparedStatement statement = connection.prepareStatement(insertFileInfoSQL)) {
-            statement.setString(1, fileInfo.getUUID().toString());
-            statement.setString(2, fileInfo.getPath());
-            statement.setString(3, fileInfo.getFileName());
-            statement.setLong(4, fileInfo.getFileSize());
-            statement.setString(5, DateUtils.localDateTimeToString(fileInfo.getModifiedDate()));
-            statement.setString(6, fileInfo.getMd5Hash());
+        try {
+            PreparedStatement statement = getStatement(FileUpdateOperation.UpdateType.INSERT);
+            bindFileInfo(FileUpdateOperation.UpdateType.INSERT, statement, fileInfo);
             int i = statement.executeUpdate();
             LOGGER.debug(String.format("Inserted %d records", i));
         } catch (SQLException e) {
@@ -130,14 +138,159 @@ class DataStorageSQLite implements DataStorage {
         }
     }
 
+    /**
+     * Consecutive operations of the same type are sent as one JDBC batch of up to batchSize rows
+     * Every batch is guarded by a savepoint: if it fails, it's rolled back and executed row by row,
+     * so only the erroneous rows are left unsuccessful
+     * Without transaction (auto commit) operations are executed row by row
+     */
+    @Override
+    public void batchFileUpdateOperations(List<FileUpdateOperation> operations) throws LibraryDatabaseException {
+        if (!isConnectionActive()) {
+            throw new LibraryDatabaseException("Batch is not prepared");
+        }
+        LOGGER.debug("Executing batch of " + operations.size() + " operations, batch size " + batchSize);
+        List<FileUpdateOperation> chunk = new ArrayList<>(Math.min(batchSize, operations.size()));
+        FileUpdateOperation.UpdateType chunkType = null;
+        try {
+            for (FileUpdateOperation operation : operations) {
+                if (chunk.size() >= batchSize || (chunkType != null && chunkType != operation.getUpdateType())) {
+                    executeChunk(chunkType, chunk);
+                    chunk.clear();
+                }
+                chunkType = operation.getUpdateType();
+                chunk.add(operation);
+            }
+            if (!chunk.isEmpty()) {
+                executeChunk(chunkType, chunk);
+            }
+        } catch (SQLException e) {
+            LOGGER.error("Batch error", e);
+            throw new LibraryDatabaseException(e);
+        }
+    }
+
+    private void executeChunk(FileUpdateOperation.UpdateType updateType, List<FileUpdateOperation> chunk) throws SQLException {
+        PreparedStatement statement = getStatement(updateType);
+        if (connection.getAutoCommit()) {
+            executeRowByRow(updateType, statement, chunk);
+            return;
+        }
+        Savepoint savepoint = connection.setSavepoint();
+        try {
+            for (FileUpdateOperation operation : chunk) {
+                synchronized (operation.getFileInfo()) {
+                    bindFileInfo(updateType, statement, operation.getFileInfo());
+                }
+                statement.addBatch();
+            }
+            int[] counts = statement.executeBatch();
+            connection.releaseSavepoint(savepoint);
+            for (int i = 0; i < chunk.size(); i++) {
+                if (i >= counts.length || counts[i] != Statement.EXECUTE_FAILED) {
+                    chunk.get(i).setSuccess();
+                }
+            }
+            LOGGER.debug(String.format("Batch %s of %d records executed", updateType, chunk.size()));
+        } catch (SQLException | RuntimeException e) {
+            LOGGER.error(String.format("Batch %s of %d records failed, executing row by row", updateType, chunk.size()), e);
+            statement.clearBatch();
+            connection.rollback(savepoint);
+            executeRowByRow(updateType, statement, chunk);
+        }
+    }
+
+    private void executeRowByRow(FileUpdateOperation.UpdateType updateType, PreparedStatement statement,
+                                 List<FileUpdateOperation> chunk) {
+        for (FileUpdateOperation operation : chunk) {
+            try {
+                synchronized (operation.getFileInfo()) {
+                    bindFileInfo(updateType, statement, operation.getFileInfo());
+                }
+                statement.executeUpdate();
+                operation.setSuccess();
+            } catch (SQLException | RuntimeException e) {
+                LOGGER.error(updateType + " error for " + operation.getFileInfo(), e);
+            }
+        }
+    }
+
+    /**
+     * Prepared statements are cached for the long-lived writer connection and closed with it
+     */
+    private PreparedStatement getStatement(FileUpdateOperation.UpdateType updateType) throws SQLException {
+        PreparedStatement statement = statements.get(updateType);
+        if (statement == null || statement.isClosed()) {
+            statement = connection.prepareStatement(getUpdateSQL(updateType));
+            statements.put(updateType, statement);
+        }
+        return statement;
+    }
+
+    private static String getUpdateSQL(FileUpdateOperation.UpdateType updateType) {
+        switch (updateType) {
+            case INSERT:
+                return insertFileInfoSQL;
+            case UPDATE:
+                return updateFileInfoSQL;
+            case DELETE:
+                return deleteFileInfoSQL;
+            default:
+                throw new IllegalArgumentException("Unknown operation type: " + updateType);
+        }
+    }
+
+    private static void bindFileInfo(FileUpdateOperation.UpdateType updateType, PreparedStatement statement,
+                                     FileInfo fileInfo) throws SQLException {
+        String lastUpdated = DateUtils.localDateTimeToString(LocalDateTime.now());
+        switch (updateType) {
+            case INSERT:
+                statement.setString(1, fileInfo.getUUID().toString());
+                statement.setString(2, fileInfo.getPath());
+                statement.setString(3, fileInfo.getFileName());
+                statement.setObject(4, fileInfo.getFileSize());
+                statement.setString(5, DateUtils.localDateTimeToString(fileInfo.getModifiedDate()));
+                statement.setString(6, fileInfo.getMd5Hash());
+                statement.setString(7, lastUpdated);
+                break;
+            case UPDATE:
+                statement.setString(1, fileInfo.getPath());
+                statement.setString(2, fileInfo.getFileName());
+                statement.setObject(3, fileInfo.getFileSize());
+                statement.setString(4, DateUtils.localDateTimeToString(fileInfo.getModifiedDate()));
+                statement.setString(5, fileInfo.getMd5Hash());
+                statement.setString(6, lastUpdated);
+                statement.setString(7, fileInfo.getUUID().toString());
+                break;
+            case DELETE:
+                statement.setString(1, fileInfo.getUUID().toString());
+                break;
+        }
+    }
+
+    @Override
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Batch is executed by the writer connection of the pool, not finished transaction of the previous batch
+     * is rolled back
+     */
     @Override
     public void prepareBatch(boolean autoCommit) throws LibraryDatabaseException {
         closeConnection();
         try {
-            connection = getConnection();
-            if (!autoCommit) {
-                connection.setAutoCommit(false);
+            connection = getConnectionPool().getWriter();
+            if (!connection.getAutoCommit()) {
+                connection.rollback();
             }
+            connection.setAutoCommit(autoCommit);
         } catch (SQLException e) {
             LOGGER.error("prepareBatch error", e);
             throw new LibraryDatabaseException(e);
@@ -184,32 +337,44 @@ class DataStorageSQLite implements DataStorage {
 
     @Override
     public List<FileInfo> getFileInfoList() throws LibraryDatabaseException {
-        LOGGER.debug("Selecting all records");
         List<FileInfo> results = new ArrayList<>();
+        forEachFileInfo(results::add);
+        return results;
+    }
+
+    @Override
+    public void forEachFileInfo(Consumer<FileInfo> consumer) throws LibraryDatabaseException {
+        LOGGER.debug("Selecting all records");
+        int count = 0;
         Connection connection = null;
         try {
-            connection = getConnection();
-            Statement statement = connection.createStatement();
-            ResultSet resultSet = statement.executeQuery(getFileInfoListSQL);
-            while (resultSet.next()) {
-                FileInfo fileInfo = new FileInfo(
-                        UUID.fromString(resultSet.getString(Fields.UUID_FIELD.getDbFieldName())),
-                        resultSet.getString(Fields.FILE_PATH_FIELD.getDbFieldName()),
-                        resultSet.getString(Fields.FILE_NAME_FIELD.getDbFieldName()),
-                        resultSet.getLong(Fields.FILE_SIZE_FIELD.getDbFieldName()),
-                        DateUtils.stringToLocalDateTime(resultSet.getString(Fields.FILE_DATE_FIELD.getDbFieldName())),
-                        resultSet.getString(Fields.FILE_MD5_FIELD.getDbFieldName())
-                );
-                results.add(fileInfo);
+            connection = getConnectionPool().borrow();
+            try (Statement statement = connection.createStatement()) {
+                statement.setFetchSize(FETCH_SIZE);
+                ResultSet resultSet = statement.executeQuery(getFileInfoListSQL);
+                while (resultSet.next()) {
+                    consumer.accept(readFileInfo(resultSet));
+                    count++;
+                }
             }
         } catch (SQLException e) {
-            LOGGER.error("isConnectionActive error", e);
+            LOGGER.error("forEachFileInfo error", e);
             throw new LibraryDatabaseException(e);
         } finally {
-            closeConnection(connection);
+            getConnectionPool().release(connection);
         }
-        LOGGER.debug(String.format("Selected %d records", results.size()));
-        return results;
+        LOGGER.debug(String.format("Selected %d records", count));
+    }
+
+    private FileInfo readFileInfo(ResultSet resultSet) throws SQLException {
+        return new FileInfo(
+                UUID.fromString(resultSet.getString(Fields.UUID_FIELD.getDbFieldName())),
+                resultSet.getString(Fields.FILE_PATH_FIELD.getDbFieldName()),
+                resultSet.getString(Fields.FILE_NAME_FIELD.getDbFieldName()),
+                resultSet.getLong(Fields.FILE_SIZE_FIELD.getDbFieldName()),
+                DateUtils.stringToLocalDateTime(resultSet.getString(Fields.FILE_DATE_FIELD.getDbFieldName())),
+                resultSet.getString(Fields.FILE_MD5_FIELD.getDbFieldName())
+        );
     }
 
     @Override
@@ -217,13 +382,56 @@ class DataStorageSQLite implements DataStorage {
         LOGGER.info("Update database structure");
         try {
             updateStructure();
+            updateJournalMode();
         } catch (Exception e) {
             LOGGER.error(e.getClass().getName() + ": " + e.getMessage(), e);
         }
     }
 
+    /**
+     * Open new connection with connection scoped pragmas applied
+     */
     Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(getDBUrl());
+        Connection connection = DriverManager.getConnection(getDBUrl());
+        try (Statement statement = connection.createStatement()) {
+            for (String pragma : settings.getConnectionPragmas()) {
+                statement.execute(pragma);
+            }
+        } catch (SQLException e) {
+            closeConnection(connection);
+            throw e;
+        }
+        return connection;
+    }
+
+    synchronized SQLiteConnectionPool getConnectionPool() {
+        if (connectionPool == null) {
+            connectionPool = new SQLiteConnectionPool(this::getConnection, settings.getMaxIdleReaders());
+        }
+        return connectionPool;
+    }
+
+    void setSettings(SQLiteSettings settings) {
+        this.settings = settings;
+    }
+
+    /**
+     * Journal mode is persistent, so it is enough to set it once for the database
+     */
+    void updateJournalMode() throws SQLException {
+        journalMode = String.valueOf(executeOneSelectStatement(settings.getJournalModePragma()));
+        LOGGER.info("Journal mode is " + journalMode);
+    }
+
+    /**
+     * Only WAL journal lets the writer commit while a reader holds the database,
+     * in other modes the commit waits for the end of the read and fails by the busy timeout
+     * Mode applied to the database is used, configured one until the database is prepared
+     */
+    @Override
+    public boolean isCommitDuringReadSupported() {
+        String mode = journalMode != null ? journalMode : settings.getJournalMode();
+        return "wal".equalsIgnoreCase(mode);
     }
 
     /**
@@ -256,18 +464,20 @@ class DataStorageSQLite implements DataStorage {
     }
 
     void createStructure(String sql) throws SQLException {
-        try (Connection connection = getConnection()) {
-            Statement statement = connection.createStatement();
+        Connection connection = getConnectionPool().borrow();
+        try (Statement statement = connection.createStatement()) {
             statement.executeUpdate(sql);
         } catch (Exception ex) {
             LOGGER.error("createStructure error", ex);
+        } finally {
+            getConnectionPool().release(connection);
         }
     }
 
     Object executeOneSelectStatement(String sql) throws SQLException {
         Object result = null;
-        try (Connection connection = getConnection()) {
-            Statement statement = connection.createStatement();
+        Connection connection = getConnectionPool().borrow();
+        try (Statement statement = connection.createStatement()) {
             if (statement.execute(sql)) {
                 ResultSet resultSet = statement.getResultSet();
                 if (resultSet.getMetaData().getColumnCount() == 1) {
@@ -281,6 +491,8 @@ class DataStorageSQLite implements DataStorage {
                     throw new SQLException("Result set contains of more than 1 column");
                 }
             }
+        } finally {
+            getConnectionPool().release(connection);
         }
         return result;
     }
@@ -295,6 +507,7 @@ class DataStorageSQLite implements DataStorage {
 
     @Override
     public void setDbPath(Path dbPath) {
+        close();
         this.dbPath = dbPath;
     }
 
@@ -310,9 +523,41 @@ class DataStorageSQLite implements DataStorage {
         }
     }
 
+    /**
+     * Writer connection stays open for the next batch, not committed changes are rolled back
+     */
     @Override
     public void closeConnection() {
-        closeConnection(connection);
+        try {
+            if (isConnectionActive() && !connection.getAutoCommit()) {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            LOGGER.error("closeConnection error", e);
+        }
+        connection = null;
+    }
+
+    @Override
+    public synchronized void close() {
+        closeStatements();
+        connection = null;
+        if (connectionPool != null) {
+            connectionPool.close();
+            connectionPool = null;
+        }
+    }
+
+    private void closeStatements() {
+        for (PreparedStatement statement : statements.values()) {
+            try {
+                statement.close();
+            } catch (SQLException ex) {
+                LOGGER.error(ex);
+            }
+        }
+        statements.clear();
     }
 
     @Override
@@ -337,6 +582,15 @@ class DataStorageSQLite implements DataStorage {
             if (values.containsKey(Fields.LAST_UPDATED_FIELD.getDbFieldName())) {
                 result.put(Fields.LAST_UPDATED_FIELD, DateUtils.stringToLocalDateTime(String.valueOf(values.get(Fields.LAST_UPDATED_FIELD.getDbFieldName()))));
             }
+            if (values.containsKey(Fields.HASH_TYPE_FIELD.getDbFieldName())) {
+                result.put(Fields.HASH_TYPE_FIELD, String.valueOf(values.get(Fields.HASH_TYPE_FIELD.getDbFieldName())));
+            }
+            if (values.get(Fields.REFRESH_CURSOR_FIELD.getDbFieldName()) != null) {
+                result.put(Fields.REFRESH_CURSOR_FIELD, String.valueOf(values.get(Fields.REFRESH_CURSOR_FIELD.getDbFieldName())));
+            }
+            if (values.get(Fields.CHANGE_FEED_PENDING_FIELD.getDbFieldName()) != null) {
+                result.put(Fields.CHANGE_FEED_PENDING_FIELD, ((Number) values.get(Fields.CHANGE_FEED_PENDING_FIELD.getDbFieldName())).intValue() != 0);
+            }
         } catch (Exception e) {
             LOGGER.error("getMeta error", e);
         }
@@ -346,14 +600,20 @@ class DataStorageSQLite implements DataStorage {
 
     @Override
     public void setMeta(Fields field, Object value) throws SQLException {
-        try (Connection connection = getConnection()) {
-            String updateSql = String.format(setMetaSQL, field.getDbFieldName());
-            PreparedStatement statement = connection.prepareStatement(updateSql);
+        String updateSql = String.format(setMetaSQL, field.getDbFieldName());
+        Connection connection = getConnectionPool().borrow();
+        try (PreparedStatement statement = connection.prepareStatement(updateSql)) {
             statement.setObject(1, value);
             statement.executeUpdate();
+        } finally {
+            getConnectionPool().release(connection);
         }
     }
 
+    /**
+     * Copy is made by the online backup of SQLite, so pages which are still in the WAL file are copied too
+     * and the copy is consistent even if the database is written meanwhile
+     */
     @Override
     public boolean backupDatabase() {
         boolean result = false;
@@ -365,12 +625,12 @@ class DataStorageSQLite implements DataStorage {
             if (Files.exists(dbFilePath)) {
                 LOGGER.info("Creating copy of database: " + copyDbPath);
                 try {
-                    Files.copy(dbFilePath, copyDbPath);
+                    copyDatabase(copyDbPath);
                     Files.setAttribute(copyDbPath, "dos:hidden", true);
                     result = true;
                     LOGGER.info("Copy created successfully");
                     clearOldBackups(10);
-                } catch (IOException e) {
+                } catch (SQLException | IOException e) {
                     LOGGER.error("backupDatabase error ", e);
                 } catch (IllegalArgumentException e) {
                     LOGGER.error("setAttribute error ", e);
@@ -380,6 +640,15 @@ class DataStorageSQLite implements DataStorage {
         return result;
     }
 
+    private void copyDatabase(Path copyDbPath) throws SQLException {
+        Connection connection = getConnection();
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("backup to \"" + copyDbPath + "\"");
+        } finally {
+            closeConnection(connection);
+        }
+    }
+
     public void clearOldBackups(int maxCountOfBackups) throws IOException {
         FileUtils.clearOldFiles(BACKUP_EXT, dbPath, maxCountOfBackups);
     }
@@ -399,8 +668,8 @@ class DataStorageSQLite implements DataStorage {
 
     private Map<String, Object> executeSelectStatement(String querySql) throws SQLException {
         Map<String, Object> result = new HashMap<>();
-        try (Connection connection = getConnection()) {
-            Statement statement = connection.createStatement();
+        Connection connection = getConnectionPool().borrow();
+        try (Statement statement = connection.createStatement()) {
             ResultSet resultSet = statement.executeQuery(querySql);
             ResultSetMetaData metaData = resultSet.getMetaData();
             if (resultSet.next()) {
@@ -410,6 +679,8 @@ class DataStorageSQLite implements DataStorage {
                     }
                 }
             }
+        } finally {
+            getConnectionPool().release(connection);
         }
         return result;
     }
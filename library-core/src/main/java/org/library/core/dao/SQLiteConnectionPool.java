@@ -0,0 +1,91 @@
+package org.library.core.dao;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Connections of one library database
+ * Single long-lived writer is used for batches, short reads and meta updates borrow pooled connections,
+ * so in WAL mode status requests are not blocked by the running commit and do not open new connection
+ */
+class SQLiteConnectionPool {
+    private static final Logger LOGGER = LogManager.getLogger(SQLiteConnectionPool.class);
+
+    private final ConnectionFactory connectionFactory;
+    private final BlockingQueue<Connection> idleConnections;
+    private Connection writer;
+
+    /**
+     * @param connectionFactory opens new configured connection
+     * @param maxIdleConnections max count of connections kept open between borrows
+     */
+    SQLiteConnectionPool(ConnectionFactory connectionFactory, int maxIdleConnections) {
+        this.connectionFactory = connectionFactory;
+        this.idleConnections = new ArrayBlockingQueue<>(Math.max(1, maxIdleConnections));
+    }
+
+    synchronized Connection getWriter() throws SQLException {
+        if (writer == null || writer.isClosed()) {
+            writer = connectionFactory.createConnection();
+        }
+        return writer;
+    }
+
+    /**
+     * Take idle connection or open new one, connection should be returned with release
+     */
+    Connection borrow() throws SQLException {
+        Connection connection;
+        while ((connection = idleConnections.poll()) != null) {
+            if (!connection.isClosed()) {
+                return connection;
+            }
+        }
+        return connectionFactory.createConnection();
+    }
+
+    /**
+     * Keep connection for the next borrow or close it when there are enough idle connections
+     */
+    void release(Connection connection) {
+        if (connection == null) {
+            return;
+        }
+        try {
+            if (!connection.isClosed() && !idleConnections.offer(connection)) {
+                connection.close();
+            }
+        } catch (SQLException e) {
+            LOGGER.error("release error", e);
+        }
+    }
+
+    synchronized void close() {
+        Connection connection;
+        while ((connection = idleConnections.poll()) != null) {
+            close(connection);
+        }
+        close(writer);
+        writer = null;
+    }
+
+    private void close(Connection connection) {
+        try {
+            if (connection != null && !connection.isClosed()) {
+                connection.close();
+            }
+        } catch (SQLException e) {
+            LOGGER.error("close error", e);
+        }
+    }
+
+    @FunctionalInterface
+    interface ConnectionFactory {
+        Connection createConnection() throws SQLException;
+    }
+}
@@ -0,0 +1,91 @@
+package org.library.core.dao;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Pragmas and pool limits of the SQLite storage
+ * Journal mode is kept by the database file, so it is set once when database is prepared,
+ * the rest of pragmas are connection scoped and applied to every opened connection
+ */
+class SQLiteSettings {
+    static final String DEFAULT_JOURNAL_MODE = "WAL";
+    static final String DEFAULT_SYNCHRONOUS = "NORMAL";
+    static final int DEFAULT_CACHE_SIZE = -16000;
+    static final int DEFAULT_BUSY_TIMEOUT = 5000;
+    static final int DEFAULT_MAX_IDLE_READERS = 4;
+
+    private String journalMode = DEFAULT_JOURNAL_MODE;
+    private String synchronous = DEFAULT_SYNCHRONOUS;
+    private int cacheSize = DEFAULT_CACHE_SIZE;
+    private int busyTimeout = DEFAULT_BUSY_TIMEOUT;
+    private int maxIdleReaders = DEFAULT_MAX_IDLE_READERS;
+
+    public String getJournalMode() {
+        return journalMode;
+    }
+
+    public void setJournalMode(String journalMode) {
+        this.journalMode = journalMode;
+    }
+
+    public String getSynchronous() {
+        return synchronous;
+    }
+
+    public void setSynchronous(String synchronous) {
+        this.synchronous = synchronous;
+    }
+
+    /**
+     * @return cache size in pages, negative value is the size in KiB
+     */
+    public int getCacheSize() {
+        return cacheSize;
+    }
+
+    public void setCacheSize(int cacheSize) {
+        this.cacheSize = cacheSize;
+    }
+
+    /**
+     * @return milliseconds for connection to wait for the lock held by another connection
+     */
+    public int getBusyTimeout() {
+        return busyTimeout;
+    }
+
+    public void setBusyTimeout(int busyTimeout) {
+        this.busyTimeout = busyTimeout;
+    }
+
+    public int getMaxIdleReaders() {
+        return maxIdleReaders;
+    }
+
+    public void setMaxIdleReaders(int maxIdleReaders) {
+        this.maxIdleReaders = maxIdleReaders;
+    }
+
+    String getJournalModePragma() {
+        return "pragma journal_mode = " + journalMode;
+    }
+
+    List<String> getConnectionPragmas() {
+        return Arrays.asList(
+                "pragma synchronous = " + synchronous,
+                "pragma cache_size = " + cacheSize,
+                "pragma busy_timeout = " + busyTimeout);
+    }
+
+    @Override
+    public String toString() {
+        return "SQLiteSettings{" +
+                "journalMode='" + journalMode + '\'' +
+                ", synchronous='" + synchronous + '\'' +
+                ", cacheSize=" + cacheSize +
+                ", busyTimeout=" + busyTimeout +
+                ", maxIdleReaders=" + maxIdleReaders +
+                '}';
+    }
+}
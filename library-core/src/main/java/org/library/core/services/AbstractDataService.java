@@ -1,24 +1,191 @@
 package org.library.core.services;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.library.common.utils.HashType;
 import org.library.entities.FileUpdateOperation;
 
 import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 
 public abstract class AbstractDataService  implements DataService {
+    private static final Logger LOGGER = LogManager.getLogger(AbstractDataService.class);
     protected final List<FileUpdateOperation> queue = new ArrayList<>();
     protected Path databasePath;
+    protected HashType defaultHashType = HashType.MD5;
+    private final List<Consumer<List<FileUpdateOperation>>> commitListeners = new CopyOnWriteArrayList<>();
+
+    // streaming commit state is guarded by the queue
+    private final List<FileUpdateOperation> streamFailedOperations = new ArrayList<>();
+    private Thread commitWriter;
+    private boolean streaming;
+    private int flushSize;
+    private long flushIntervalMillis;
+    private int maxQueueSize;
 
     public int getQueueSize() {
         return queue.size();
     }
 
+    /**
+     * Caller waits while streaming commit is on and the queue is full
+     */
     void addOperationToQueue(FileUpdateOperation updateOperation) {
         synchronized (queue) {
+            while (streaming && maxQueueSize > 0 && queue.size() >= maxQueueSize) {
+                try {
+                    queue.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
             queue.add(updateOperation);
+            if (streaming && flushSize > 0 && queue.size() >= flushSize) {
+                queue.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Take queued operations and clear the queue
+     */
+    List<FileUpdateOperation> takeQueue() {
+        synchronized (queue) {
+            List<FileUpdateOperation> result = new ArrayList<>(queue);
+            queue.clear();
+            queue.notifyAll();
+            return result;
+        }
+    }
+
+    @Override
+    public void startStreamingCommit(int commitSize, long commitIntervalMillis, int maxQueueSize) {
+        Thread writer;
+        synchronized (queue) {
+            if (streaming) {
+                return;
+            }
+            // queue is flushed when it is full at the latest, otherwise callers could wait for the interval
+            this.flushSize = maxQueueSize > 0 && (commitSize <= 0 || commitSize > maxQueueSize) ? maxQueueSize : commitSize;
+            this.flushIntervalMillis = commitIntervalMillis;
+            this.maxQueueSize = maxQueueSize;
+            streaming = true;
+            writer = new Thread(this::writeCommits, "commit-writer-" + databasePath);
+            writer.setDaemon(true);
+            commitWriter = writer;
         }
+        writer.start();
+        LOGGER.info("Streaming commit started, size " + flushSize + ", interval " + commitIntervalMillis + " ms, queue " + maxQueueSize);
+    }
+
+    @Override
+    public List<FileUpdateOperation> stopStreamingCommit() {
+        Thread writer;
+        synchronized (queue) {
+            streaming = false;
+            writer = commitWriter;
+            commitWriter = null;
+            queue.notifyAll();
+        }
+        if (writer != null) {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                LOGGER.warn("Awaiting of the commit writer interrupted");
+            }
+            LOGGER.info("Streaming commit stopped");
+        }
+        return takeStreamFailedOperations();
+    }
+
+    @Override
+    public List<FileUpdateOperation> takeStreamFailedOperations() {
+        synchronized (queue) {
+            List<FileUpdateOperation> result = new ArrayList<>(streamFailedOperations);
+            streamFailedOperations.clear();
+            return result;
+        }
+    }
+
+    private void writeCommits() {
+        while (awaitFlush()) {
+            if (getQueueSize() == 0) {
+                continue;
+            }
+            try {
+                // commitFileInfo is synchronized on the service, failures are recorded under the same lock,
+                // so they are seen by whoever commits next
+                synchronized (this) {
+                    List<FileUpdateOperation> failed = commitFileInfo();
+                    synchronized (queue) {
+                        streamFailedOperations.addAll(failed);
+                    }
+                }
+            } catch (RuntimeException e) {
+                LOGGER.error("writeCommits error", e);
+            }
+        }
+    }
+
+    /**
+     * Wait until the queue reaches the flush size or the interval passes
+     *
+     * @return false when streaming commit is stopped, operations left are committed by the caller
+     */
+    private boolean awaitFlush() {
+        synchronized (queue) {
+            long deadline = flushIntervalMillis > 0 ? System.currentTimeMillis() + flushIntervalMillis : 0;
+            while (streaming && (flushSize <= 0 || queue.size() < flushSize)) {
+                long timeout = 0;
+                if (deadline > 0) {
+                    timeout = deadline - System.currentTimeMillis();
+                    if (timeout <= 0) {
+                        break;
+                    }
+                }
+                try {
+                    queue.wait(timeout);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            return streaming;
+        }
+    }
+
+    @Override
+    public void addCommitListener(Consumer<List<FileUpdateOperation>> commitListener) {
+        commitListeners.add(commitListener);
+    }
+
+    /**
+     * Pass successful committed operations to the commit listeners
+     */
+    void notifyCommitListeners(List<FileUpdateOperation> committed) {
+        if (commitListeners.isEmpty()) {
+            return;
+        }
+        List<FileUpdateOperation> operations = new ArrayList<>();
+        for (FileUpdateOperation operation : committed) {
+            if (operation.getIsSuccess()) {
+                operations.add(operation);
+            }
+        }
+        if (!operations.isEmpty()) {
+            commitListeners.forEach(listener -> listener.accept(operations));
+        }
+    }
+
+    @Override
+    public void setDefaultHashType(HashType defaultHashType) {
+        this.defaultHashType = defaultHashType;
     }
 
     @Override
@@ -2,12 +2,14 @@ package org.library.core.services;
 
 import org.library.core.exceptions.LibraryDatabaseException;
 import org.library.common.entities.FileInfo;
+import org.library.common.utils.HashType;
 import org.library.entities.FileUpdateOperation;
 
 import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 public interface DataService {
 
@@ -19,13 +21,49 @@ public interface DataService {
 
     // get all data method
     List<FileInfo> getFileInfoList() throws LibraryDatabaseException;
+    void forEachFileInfo(Consumer<FileInfo> consumer) throws LibraryDatabaseException;
 
     // transaction operators
     List<FileUpdateOperation> commitFileInfo();
     List<FileUpdateOperation> rollbackFileInfo();
 
+    /**
+     * Commit queued operations by the background writer every commitSize operations or commitIntervalMillis,
+     * callers adding operations wait while maxQueueSize operations are queued
+     *
+     * @param commitSize           count of operations to commit, 0 to commit by the interval only
+     * @param commitIntervalMillis interval of commits, 0 to commit by the size only
+     * @param maxQueueSize         limit of the queue, 0 for the unbounded queue
+     */
+    void startStreamingCommit(int commitSize, long commitIntervalMillis, int maxQueueSize);
+
+    /**
+     * Stop the background writer, operations queued after its last commit are left for commitFileInfo
+     *
+     * @return operations failed by the commits of the writer
+     */
+    List<FileUpdateOperation> stopStreamingCommit();
+
+    /**
+     * @return operations failed by the commits of the streaming writer since the last call
+     */
+    List<FileUpdateOperation> takeStreamFailedOperations();
+
+    /**
+     * Streaming and intermediate commits of the refresh are done while file info is read,
+     * they are allowed only when the storage does not block commits by readers
+     */
+    boolean isCommitDuringReadSupported();
+
+    /**
+     * Listener is called once per commit with the operations it has stored
+     */
+    void addCommitListener(Consumer<List<FileUpdateOperation>> commitListener);
+
     void setDatabasePath(Path path);
+    void setDefaultHashType(HashType hashType);
     void prepareDatabase() throws LibraryDatabaseException;
+    void closeDatabase();
 
     int getFileInfoCount();
 
@@ -34,4 +72,24 @@ public interface DataService {
 
     void updateLastUpdateDate(LocalDateTime dateTime) throws LibraryDatabaseException;
     void updateLastRefreshDate(LocalDateTime dateTime) throws LibraryDatabaseException;
+
+    /**
+     * Algorithm of the file content fingerprint selected for the library, default one if not selected
+     */
+    HashType getHashType();
+    void updateHashType(HashType hashType) throws LibraryDatabaseException;
+
+    /**
+     * Checkpoint of the unfinished refresh: files before the cursor in the path order are refreshed and committed
+     *
+     * @return cursor or null if the last refresh was finished
+     */
+    String getRefreshCursor();
+    void updateRefreshCursor(String cursor) throws LibraryDatabaseException;
+
+    /**
+     * Marker of commits which changes may be not appended to the change feed yet, e.g. after a crash of the refresh
+     */
+    boolean isChangeFeedPending();
+    void updateChangeFeedPending(boolean pending) throws LibraryDatabaseException;
 }
@@ -6,6 +6,7 @@ import org.library.core.dao.DataStorage;
 import org.library.core.exceptions.LibraryDatabaseException;
 import org.library.core.utils.DateUtils;
 import org.library.common.entities.FileInfo;
+import org.library.common.utils.HashType;
 import org.library.entities.FileUpdateOperation;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
@@ -15,6 +16,7 @@ import java.sql.SQLException;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Component()
@@ -65,30 +67,30 @@ public class DataServiceDBImpl extends AbstractDataService {
     }
 
     @Override
-    public List<FileUpdateOperation> commitFileInfo() {
-        boolean hasChanged = queue.size() > 0;
-        LOGGER.info("commitFileInfo started for " + queue.size());
+    public void forEachFileInfo(Consumer<FileInfo> consumer) throws LibraryDatabaseException {
+        dataStorage.forEachFileInfo(consumer);
+    }
+
+    /**
+     * Commit operations queued so far, operations queued meanwhile by other threads wait for the next commit
+     * Commits are serialized, so snapshots are stored in the order they were taken
+     * Operations are executed in one transaction, all of them are failed if it is not committed
+     */
+    @Override
+    public synchronized List<FileUpdateOperation> commitFileInfo() {
+        List<FileUpdateOperation> operations = takeQueue();
+        boolean hasChanged = operations.size() > 0;
+        boolean committed = false;
+        LOGGER.info("commitFileInfo started for " + operations.size());
         try {
             dataStorage.prepareBatch(false);
-            for (FileUpdateOperation fileUpdateOperation : queue) {
-                synchronized (fileUpdateOperation.getFileInfo()) {
-                    switch (fileUpdateOperation.getUpdateType()) {
-                        case INSERT:
-                            dataStorage.batchInsertFileInfo(fileUpdateOperation.getFileInfo());
-                            break;
-                        case UPDATE:
-                            dataStorage.batchUpdateFileInfo(fileUpdateOperation.getFileInfo());
-                            break;
-                        case DELETE:
-                            dataStorage.batchDeleteFileInfo(fileUpdateOperation.getFileInfo());
-                            break;
-                        default:
-                            throw new Exception("Unknown operation type: " + fileUpdateOperation.getUpdateType());
-                    }
-                }
-                fileUpdateOperation.setSuccess();
+            if (dataStorage.getBatchSize() > 0) {
+                dataStorage.batchFileUpdateOperations(operations);
+            } else {
+                commitOneByOne(operations);
             }
             dataStorage.commit();
+            committed = true;
             if (hasChanged) {
                 updateLastUpdateDate(LocalDateTime.now());
             }
@@ -97,16 +99,47 @@ public class DataServiceDBImpl extends AbstractDataService {
         } finally {
             dataStorage.closeConnection();
         }
-        List<FileUpdateOperation> result = getFailedOperationsAndClearQueue();
+        if (committed) {
+            notifyCommitListeners(operations);
+        } else {
+            operations.forEach(FileUpdateOperation::resetSuccess);
+        }
+        List<FileUpdateOperation> result = getFailedOperations(operations);
         LOGGER.info("commitFileInfo done, failed " + result.size());
         return result;
     }
 
+    private void commitOneByOne(List<FileUpdateOperation> operations) throws Exception {
+        for (FileUpdateOperation fileUpdateOperation : operations) {
+            synchronized (fileUpdateOperation.getFileInfo()) {
+                switch (fileUpdateOperation.getUpdateType()) {
+                    case INSERT:
+                        dataStorage.batchInsertFileInfo(fileUpdateOperation.getFileInfo());
+                        break;
+                    case UPDATE:
+                        dataStorage.batchUpdateFileInfo(fileUpdateOperation.getFileInfo());
+                        break;
+                    case DELETE:
+                        dataStorage.batchDeleteFileInfo(fileUpdateOperation.getFileInfo());
+                        break;
+                    default:
+                        throw new Exception("Unknown operation type: " + fileUpdateOperation.getUpdateType());
+                }
+            }
+            fileUpdateOperation.setSuccess();
+        }
+    }
+
     @Override
     public List<FileUpdateOperation> rollbackFileInfo() {
         return getFailedOperationsAndClearQueue();
     }
 
+    @Override
+    public boolean isCommitDuringReadSupported() {
+        return dataStorage.isCommitDuringReadSupported();
+    }
+
     @Override
     public void setDatabasePath(Path libraryPath) {
         LOGGER.info("setDatabasePath to " + libraryPath);
@@ -126,6 +159,12 @@ public class DataServiceDBImpl extends AbstractDataService {
         }
     }
 
+    @Override
+    public void closeDatabase() {
+        LOGGER.info("closeDatabase");
+        dataStorage.close();
+    }
+
     @Override
     public int getFileInfoCount() {
         return dataStorage.getFileInfoCount();
@@ -161,12 +200,64 @@ public class DataServiceDBImpl extends AbstractDataService {
         }
     }
 
+    @Override
+    public HashType getHashType() {
+        HashType result = HashType.getHashTypeByName((String) dataStorage.getMeta().get(DataStorage.Fields.HASH_TYPE_FIELD));
+        return result == null ? defaultHashType : result;
+    }
+
+    @Override
+    public void updateHashType(HashType hashType) throws LibraryDatabaseException {
+        try {
+            dataStorage.setMeta(DataStorage.Fields.HASH_TYPE_FIELD, hashType.getName());
+        } catch (SQLException e) {
+            LOGGER.error("updateHashType error", e);
+            throw new LibraryDatabaseException(e);
+        }
+    }
+
+    @Override
+    public String getRefreshCursor() {
+        return (String) dataStorage.getMeta().get(DataStorage.Fields.REFRESH_CURSOR_FIELD);
+    }
+
+    @Override
+    public void updateRefreshCursor(String cursor) throws LibraryDatabaseException {
+        try {
+            dataStorage.setMeta(DataStorage.Fields.REFRESH_CURSOR_FIELD, cursor);
+        } catch (SQLException e) {
+            LOGGER.error("updateRefreshCursor error", e);
+            throw new LibraryDatabaseException(e);
+        }
+    }
+
+    @Override
+    public boolean isChangeFeedPending() {
+        return Boolean.TRUE.equals(dataStorage.getMeta().get(DataStorage.Fields.CHANGE_FEED_PENDING_FIELD));
+    }
+
+    @Override
+    public void updateChangeFeedPending(boolean pending) throws LibraryDatabaseException {
+        try {
+            dataStorage.setMeta(DataStorage.Fields.CHANGE_FEED_PENDING_FIELD, pending ? 1 : 0);
+        } catch (SQLException e) {
+            LOGGER.error("updateChangeFeedPending error", e);
+            throw new LibraryDatabaseException(e);
+        }
+    }
+
+    private List<FileUpdateOperation> getFailedOperations(List<FileUpdateOperation> operations) {
+        return operations.stream().filter(fileUpdateOperation -> !fileUpdateOperation.getIsSuccess()).collect(Collectors.toList());
+    }
+
     private List<FileUpdateOperation> getFailedOperationsAndClearQueue() {
         List<FileUpdateOperation> result;
         synchronized (queue) {
             result = queue.parallelStream().filter(fileUpdateOperation -> !fileUpdateOperation.getIsSuccess()).collect(Collectors.toList());
             queue.clear();
+            queue.notifyAll();
         }
+        result.addAll(takeStreamFailedOperations());
         return result;
     }
 }
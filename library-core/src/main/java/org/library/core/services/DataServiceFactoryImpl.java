@@ -4,6 +4,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.library.core.dao.DataStorage;
 import org.library.core.dao.DataStorageFactory;
+import org.library.common.utils.HashType;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Scope;
@@ -19,6 +20,8 @@ class DataServiceFactoryImpl implements DataServiceFactory {
     private final DataStorageFactory dataStorageFactory;
     private final String dataServiceType;
     private final String dataStorageType;
+    private int dataStorageBatchSize = 1000;
+    private HashType defaultHashType = HashType.MD5;
 
     @Autowired
     DataServiceFactoryImpl(DataStorageFactory dataStorageFactory,
@@ -29,16 +32,33 @@ class DataServiceFactoryImpl implements DataServiceFactory {
         this.dataStorageType = dataStorageType;
     }
 
+    @Autowired
+    public void setDataStorageBatchSize(@Value("${library.data.storage.batch.size:1000}") int dataStorageBatchSize) {
+        this.dataStorageBatchSize = dataStorageBatchSize;
+    }
+
+    @Autowired
+    public void setDefaultHashType(@Value("${library.hash.type:md5}") String hashTypeName) {
+        HashType hashType = HashType.getHashTypeByName(hashTypeName);
+        if (hashType == null || !hashType.isSupported()) {
+            LOGGER.warn("Hash type " + hashTypeName + " is not supported, " + HashType.MD5.getName() + " is used");
+            hashType = HashType.MD5;
+        }
+        this.defaultHashType = hashType;
+    }
+
     @Override
     public DataService createDataService(Path path) {
         DataService dataService = null;
         DataServiceType serviceType = DataServiceType.getDataServiceTypeByName(dataServiceType);
         DataStorage dataStorage = dataStorageFactory.createDataStorage(dataStorageType);
         if (serviceType != null && dataStorage != null) {
+            dataStorage.setBatchSize(dataStorageBatchSize);
             try {
                 Class[] params = {DataStorage.class};
                 dataService = serviceType.getClassName().getDeclaredConstructor(params).newInstance(dataStorage);
                 dataService.setDatabasePath(path);
+                dataService.setDefaultHashType(defaultHashType);
             } catch (InstantiationException | IllegalAccessException | NoSuchMethodException | InvocationTargetException e) {
                 LOGGER.error("Cannot instantiate data service type " + dataServiceType, e);
             }
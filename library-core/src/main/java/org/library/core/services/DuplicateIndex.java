@@ -0,0 +1,126 @@
+package org.library.core.services;
+
+import org.library.common.entities.FileInfo;
+import org.library.common.utils.HashType;
+import org.library.entities.DuplicateWeb;
+import org.library.entities.FileUpdateOperation;
+
+import java.util.*;
+
+/**
+ * Index of the files content across all registered libraries
+ * Content is identified by hash and size, files without hash are not indexed
+ * Hash is the fingerprint of the hash type selected for the library, fingerprints of different types never match,
+ * so duplicates are found only between libraries with the same hash type
+ * CRC32C fingerprints are not indexed: 32 bit checksum would report false duplicates in a large library
+ * Index is filled from the stored file info when library is initialized and is kept up to date by committed operations
+ * Content found in more than one location is kept in a sorted set, so pages of duplicates are stable
+ */
+class DuplicateIndex {
+    private static final Comparator<ContentKey> CONTENT_ORDER =
+            Comparator.comparingLong((ContentKey key) -> key.size).reversed().thenComparing(key -> key.hash);
+
+    private final Map<ContentKey, Set<DuplicateWeb.Location>> contents = new HashMap<>();
+    private final Map<DuplicateWeb.Location, ContentKey> locations = new HashMap<>();
+    private final NavigableSet<ContentKey> duplicates = new TreeSet<>(CONTENT_ORDER);
+
+    /**
+     * Apply committed operation of the library
+     */
+    void accept(String libraryUuid, FileUpdateOperation operation) {
+        FileInfo fileInfo = operation.getFileInfo();
+        if (operation.getUpdateType() == FileUpdateOperation.UpdateType.DELETE) {
+            remove(libraryUuid, fileInfo.getPath());
+        } else {
+            put(libraryUuid, fileInfo);
+        }
+    }
+
+    synchronized void put(String libraryUuid, FileInfo fileInfo) {
+        DuplicateWeb.Location location = new DuplicateWeb.Location(libraryUuid, fileInfo.getPath());
+        remove(location);
+        if (fileInfo.getMd5Hash() == null || fileInfo.getFileSize() == null
+                || HashType.getHashTypeByValue(fileInfo.getMd5Hash()) == HashType.CRC32C) {
+            return;
+        }
+        ContentKey key = new ContentKey(fileInfo.getMd5Hash(), fileInfo.getFileSize());
+        Set<DuplicateWeb.Location> keyLocations = contents.computeIfAbsent(key, k -> new LinkedHashSet<>(2));
+        keyLocations.add(location);
+        locations.put(location, key);
+        if (keyLocations.size() == 2) {
+            duplicates.add(key);
+        }
+    }
+
+    synchronized void remove(String libraryUuid, String path) {
+        remove(new DuplicateWeb.Location(libraryUuid, path));
+    }
+
+    /**
+     * Page of contents found in more than one location, larger contents go first
+     *
+     * @param page     page number starting from 0
+     * @param pageSize max count of items on the page
+     * @return list of duplicates
+     */
+    synchronized List<DuplicateWeb> getDuplicates(int page, int pageSize) {
+        if (page < 0 || pageSize <= 0) {
+            throw new IllegalArgumentException("Page should not be negative and page size should be positive");
+        }
+        List<DuplicateWeb> result = new ArrayList<>(Math.min(pageSize, duplicates.size()));
+        Iterator<ContentKey> iterator = duplicates.iterator();
+        long skip = (long) page * pageSize;
+        while (skip-- > 0 && iterator.hasNext()) {
+            iterator.next();
+        }
+        while (result.size() < pageSize && iterator.hasNext()) {
+            ContentKey key = iterator.next();
+            result.add(new DuplicateWeb(key.hash, key.size, new ArrayList<>(contents.get(key))));
+        }
+        return result;
+    }
+
+    synchronized int getDuplicatesCount() {
+        return duplicates.size();
+    }
+
+    private void remove(DuplicateWeb.Location location) {
+        ContentKey key = locations.remove(location);
+        if (key == null) {
+            return;
+        }
+        Set<DuplicateWeb.Location> keyLocations = contents.get(key);
+        keyLocations.remove(location);
+        if (keyLocations.size() < 2) {
+            duplicates.remove(key);
+        }
+        if (keyLocations.isEmpty()) {
+            contents.remove(key);
+        }
+    }
+
+    private static class ContentKey {
+        private final String hash;
+        private final long size;
+
+        ContentKey(String hash, long size) {
+            this.hash = hash;
+            this.size = size;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            ContentKey that = (ContentKey) o;
+
+            return size == that.size && hash.equals(that.hash);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * hash.hashCode() + Long.hashCode(size);
+        }
+    }
+}
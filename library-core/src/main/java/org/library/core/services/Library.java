@@ -5,12 +5,16 @@ import org.apache.logging.log4j.Logger;
 import org.library.common.entities.DataStatus;
 import org.library.core.exceptions.LibraryDatabaseException;
 import org.library.common.entities.FileInfo;
+import org.library.common.utils.CancellationToken;
+import org.library.common.utils.ChangeFeed;
+import org.library.common.utils.HashType;
 import org.library.entities.LibraryMetadata;
 
 import java.io.Serializable;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 /**
  * Hub for library metadata
@@ -24,6 +28,8 @@ public class Library implements Serializable {
     private transient AtomicInteger refreshItemsCount = new AtomicInteger(0);
     private transient AtomicInteger refreshProceedCount = new AtomicInteger(0);
     private transient AtomicInteger refreshUpdatedCount = new AtomicInteger(0);
+    private transient CancellationToken refreshCancellationToken;
+    private transient ChangeFeed changeFeed;
 
     Library(DataService dataService, LibraryMetadata libraryMetadata) {
         this.libraryMetadata = libraryMetadata;
@@ -49,11 +55,22 @@ public class Library implements Serializable {
         return dataService;
     }
 
+    /**
+     * @return change feed of the library or null if it is disabled
+     */
+    ChangeFeed getChangeFeed() {
+        return changeFeed;
+    }
+
+    void setChangeFeed(ChangeFeed changeFeed) {
+        this.changeFeed = changeFeed;
+    }
+
     void populateMetadata() {
         libraryMetadata.setItemsCount(dataService.getFileInfoCount());
         libraryMetadata.setLastUpdateDate(dataService.getLastUpdateDate());
         libraryMetadata.setLastRefreshDate(dataService.getLastRefreshDate());
-
+        libraryMetadata.setHashType(dataService.getHashType());
     }
 
     boolean setDataStatus(DataStatus dataStatus) {
@@ -97,6 +114,18 @@ public class Library implements Serializable {
         return refreshUpdatedCount.get();
     }
 
+    HashType getHashType() {
+        return libraryMetadata.getHashType();
+    }
+
+    /**
+     * Select algorithm of the file content fingerprint, stored hashes are recalculated on the next file change
+     */
+    void updateHashType(HashType hashType) throws LibraryDatabaseException {
+        dataService.updateHashType(hashType);
+        libraryMetadata.setHashType(hashType);
+    }
+
     public String getPath() {
         return libraryMetadata.getPath();
     }
@@ -105,7 +134,7 @@ public class Library implements Serializable {
         return libraryMetadata.getUuid();
     }
 
-    boolean checkAndSetDataStatus(DataStatus dataStatus, List<DataStatus> allowedDataStatuses) {
+    synchronized boolean checkAndSetDataStatus(DataStatus dataStatus, List<DataStatus> allowedDataStatuses) {
         boolean result = false;
         if ((allowedDataStatuses == null || allowedDataStatuses.contains(this.dataStatus))) {
             result = setDataStatus(dataStatus);
@@ -113,6 +142,23 @@ public class Library implements Serializable {
         return result;
     }
 
+    /**
+     * Token of the refresh to start, it is cancelled at once if cancel was requested before
+     */
+    synchronized CancellationToken createRefreshCancellationToken() {
+        refreshCancellationToken = new CancellationToken();
+        if (dataStatus == DataStatus.CANCELLING) {
+            refreshCancellationToken.cancel();
+        }
+        return refreshCancellationToken;
+    }
+
+    synchronized void cancelRefresh() {
+        if (refreshCancellationToken != null) {
+            refreshCancellationToken.cancel();
+        }
+    }
+
     void setRefreshItemsCount(int refreshItemsCount) {
         this.refreshItemsCount.set(refreshItemsCount);
     }
@@ -143,6 +189,21 @@ public class Library implements Serializable {
 
     }
 
+    /**
+     * Throws exception to inform invoker that operation was unsuccessful
+     *
+     * @param consumer consumer of every stored file info
+     * @throws LibraryDatabaseException
+     */
+    void forEachFileInfo(Consumer<FileInfo> consumer) throws LibraryDatabaseException {
+        try {
+            getDataService().forEachFileInfo(consumer);
+        } catch (LibraryDatabaseException e) {
+            LOGGER.debug("forEachFileInfo was unsuccessful", e);
+            throw e;
+        }
+    }
+
     void incrementRefreshProceedCount() {
         refreshProceedCount.incrementAndGet();
     }
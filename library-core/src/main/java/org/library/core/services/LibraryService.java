@@ -7,14 +7,20 @@ import org.library.common.entities.FileInfo;
 import org.library.common.entities.FileType;
 import org.library.common.services.FileService;
 import org.library.common.services.SemaphoreService;
+import org.library.common.utils.CancellationToken;
+import org.library.common.utils.ChangeFeed;
+import org.library.common.utils.FileHashCache;
 import org.library.common.utils.FileInfoHelper;
+import org.library.common.utils.PathCheckpoint;
 import org.library.core.exceptions.LibraryDatabaseException;
 import org.library.entities.*;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.io.*;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -35,7 +41,7 @@ public class LibraryService {
     private static final String KEY_LIBRARY_PATH = "library";
 
     private static final List<DataStatus> REFRESH_START_ALLOWED_STATUSES = Arrays.asList(DataStatus.IDLE);
-    private static final List<DataStatus> REFRESH_END_ALLOWED_STATUSES = Arrays.asList(DataStatus.REFRESH);
+    private static final List<DataStatus> REFRESH_END_ALLOWED_STATUSES = Arrays.asList(DataStatus.REFRESH, DataStatus.CANCELLING);
     private static final List<DataStatus> REFRESH_CANCEL_ALLOWED_STATUSES = Arrays.asList(DataStatus.REFRESH);
 
     private final FileService fileService;
@@ -43,6 +49,15 @@ public class LibraryService {
     private final SemaphoreService semaphoreService;
 
     private final ExecutorService executor;
+    private final DuplicateIndex duplicateIndex = new DuplicateIndex();
+    private boolean changeFeedEnabled = true;
+    private long changeFeedMaxSize = 64 * 1024 * 1024;
+    private int refreshCheckpointSize = 10000;
+    private boolean refreshCommitStreaming = true;
+    private int refreshCommitSize = 1000;
+    private long refreshCommitIntervalSeconds = 5;
+    private int refreshCommitQueueSize = 10000;
+    private int refreshFilesQueueSize = 1000;
 
     @Autowired
     public LibraryService(SemaphoreService semaphoreService,
@@ -54,6 +69,67 @@ public class LibraryService {
         this.executor = Executors.newFixedThreadPool(semaphoreService.getMaxAccessThreadsCount());
     }
 
+    /**
+     * Count of processed files between checkpoints of the refresh, 0 disables intermediate commits
+     */
+    @Autowired
+    public void setRefreshCheckpointSize(@Value("${library.refresh.checkpoint.size:10000}") int refreshCheckpointSize) {
+        this.refreshCheckpointSize = refreshCheckpointSize;
+    }
+
+    /**
+     * Commit operations of the refresh by the background writer while files are processed
+     */
+    @Autowired
+    public void setRefreshCommitStreaming(@Value("${library.refresh.commit.streaming:true}") boolean refreshCommitStreaming) {
+        this.refreshCommitStreaming = refreshCommitStreaming;
+    }
+
+    /**
+     * Count of operations committed by the background writer at once, 0 to commit by the interval only
+     */
+    @Autowired
+    public void setRefreshCommitSize(@Value("${library.refresh.commit.size:1000}") int refreshCommitSize) {
+        this.refreshCommitSize = refreshCommitSize;
+    }
+
+    /**
+     * Interval of the background writer commits, 0 to commit by the size only
+     */
+    @Autowired
+    public void setRefreshCommitIntervalSeconds(@Value("${library.refresh.commit.interval.seconds:5}") long refreshCommitIntervalSeconds) {
+        this.refreshCommitIntervalSeconds = refreshCommitIntervalSeconds;
+    }
+
+    /**
+     * Limit of queued operations, refresh waits for the background writer when it is reached, 0 for unbounded queue
+     */
+    @Autowired
+    public void setRefreshCommitQueueSize(@Value("${library.refresh.commit.queue.size:10000}") int refreshCommitQueueSize) {
+        this.refreshCommitQueueSize = refreshCommitQueueSize;
+    }
+
+    /**
+     * Limit of files waiting for the files pool, merge hashes the file itself when it is reached
+     */
+    @Autowired
+    public void setRefreshFilesQueueSize(@Value("${library.refresh.files.queue.size:1000}") int refreshFilesQueueSize) {
+        this.refreshFilesQueueSize = refreshFilesQueueSize;
+    }
+
+    @Autowired
+    public void setChangeFeedEnabled(@Value("${library.change.feed.enabled:true}") boolean changeFeedEnabled) {
+        this.changeFeedEnabled = changeFeedEnabled;
+    }
+
+    /**
+     * Size of the change feed in bytes, feed is recreated when it is reached and the parser walks the library once
+     */
+    @Autowired
+    public void setChangeFeedMaxSize(@Value("${library.change.feed.max.size:67108864}") long changeFeedMaxSize) {
+        this.changeFeedMaxSize = changeFeedMaxSize;
+    }
+
     /**
      * Load libraries list from local file
      *
@@ -82,6 +158,20 @@ public class LibraryService {
         LOGGER.info("Loaded libraries: " + libraries.size());
     }
 
+    /**
+     * Close databases of registered libraries
+     */
+    @PreDestroy
+    synchronized void close() {
+        executor.shutdown();
+        synchronized (libraries) {
+            for (Library library : libraries.values()) {
+                library.getDataService().closeDatabase();
+            }
+        }
+        LOGGER.info("Libraries closed");
+    }
+
     public void saveSettings() throws IOException {
         LOGGER.info("Save settings begin");
         Path path = constructSettingsFilePath();
@@ -119,13 +209,39 @@ public class LibraryService {
         if (semaphoreService.acquireGlobalAccess()) {
             try {
                 library.initLibrary();
+                recoverChangeFeed(library);
                 LOGGER.info("Library initialized " + library);
+                indexLibrary(library);
             } finally {
                 semaphoreService.releaseGlobalAccess();
             }
         }
     }
 
+    /**
+     * Add stored file info of the library to the duplicate index
+     */
+    private void indexLibrary(Library library) {
+        try {
+            library.forEachFileInfo(fileInfo -> duplicateIndex.put(library.getUUID(), fileInfo));
+            LOGGER.info("Library indexed, duplicates count is " + duplicateIndex.getDuplicatesCount());
+        } catch (LibraryDatabaseException e) {
+            LOGGER.error("indexLibrary error", e);
+        }
+    }
+
+    /**
+     * Page of files which content exists in several places of the registered libraries
+     * Content is matched only between libraries with the same hash type, libraries hashed by CRC32C are not matched
+     *
+     * @param page     page number starting from 0
+     * @param pageSize max count of items on the page
+     * @return list of duplicates, larger files go first
+     */
+    public List<DuplicateWeb> getDuplicates(int page, int pageSize) {
+        return duplicateIndex.getDuplicates(page, pageSize);
+    }
+
     public Collection<LibraryWeb> getLibraries() {
         return libraries.values().parallelStream().map(LibraryHelper::libraryToLibraryWebEntity).collect(Collectors.toList());
     }
@@ -140,11 +256,74 @@ public class LibraryService {
         DataService dataService = dataServiceFactory.createDataService(path);
         if (dataService != null) {
             result = new Library(dataService, constructLibraryMetadata(path));
-            libraries.put(result.getUUID(), result);
+            String uuid = result.getUUID();
+            dataService.addCommitListener(operations -> operations.forEach(operation -> duplicateIndex.accept(uuid, operation)));
+            if (changeFeedEnabled) {
+                ChangeFeed changeFeed = new ChangeFeed(path, changeFeedMaxSize);
+                result.setChangeFeed(changeFeed);
+                dataService.addCommitListener(operations -> appendChanges(changeFeed, operations));
+            }
+            libraries.put(uuid, result);
         }
         return result;
     }
 
+    /**
+     * Append stored operations to the change feed of the library
+     * Feed is written after the database commit, so the parser never sees changes which were rolled back
+     * Feed is invalidated by the failed append, so the parser walks the library instead of skipping the changes
+     */
+    private void appendChanges(ChangeFeed changeFeed, List<FileUpdateOperation> operations) {
+        List<ChangeFeed.Change> changes = operations.stream()
+                .map(operation -> new ChangeFeed.Change(
+                        ChangeFeed.ChangeType.valueOf(operation.getUpdateType().name()),
+                        operation.getFileInfo().getPath()))
+                .collect(Collectors.toList());
+        try {
+            changeFeed.append(changes);
+        } catch (IOException e) {
+            LOGGER.error("Cannot append " + changes.size() + " changes to the change feed", e);
+        }
+    }
+
+    /**
+     * Invalidate the change feed if the library was closed while it was marked as pending:
+     * changes committed before the crash could be not appended to the feed
+     */
+    private void recoverChangeFeed(Library library) {
+        ChangeFeed changeFeed = library.getChangeFeed();
+        if (changeFeed == null || !library.getDataService().isChangeFeedPending()) {
+            return;
+        }
+        LOGGER.warn("Change feed was not completed by the last refresh " + library);
+        try {
+            changeFeed.invalidate();
+            library.getDataService().updateChangeFeedPending(false);
+        } catch (IOException | LibraryDatabaseException e) {
+            LOGGER.error("recoverChangeFeed error", e);
+        }
+    }
+
+    /**
+     * Clear the pending marker of the change feed set at the start of the refresh
+     * Marker is kept while the feed is not invalidated after a failed append, it is recovered on the next start
+     */
+    private void completeChangeFeed(Library library) {
+        ChangeFeed changeFeed = library.getChangeFeed();
+        if (changeFeed == null) {
+            return;
+        }
+        if (!changeFeed.isValid()) {
+            LOGGER.error("Change feed is not valid, it is recovered on the next start " + library);
+            return;
+        }
+        try {
+            library.getDataService().updateChangeFeedPending(false);
+        } catch (LibraryDatabaseException e) {
+            LOGGER.error("completeChangeFeed error", e);
+        }
+    }
+
     public Map<String, Object> getDataStatus(String uuid) {
         Map<String, Object> result = new HashMap<>();
         Library library = libraries.get(uuid);
@@ -178,22 +357,31 @@ public class LibraryService {
             return;
         }
         if (library.checkAndSetDataStatus(DataStatus.REFRESH, REFRESH_START_ALLOWED_STATUSES)) {
-            executor.submit(() -> refreshDataEx(library));
+            CancellationToken cancellationToken = library.createRefreshCancellationToken();
+            executor.submit(() -> refreshDataEx(library, cancellationToken));
         }
     }
 
     /**
-     * Get list of files in the library path
-     * Get list of file info in the database
-     * Get new and updated items by comparing files against database data
-     * Get deleted items by comparing database data against files
+     * Get list of files in the library path sorted by relative path
+     * Merge them with file info read from the database ordered by path:
+     * files without file info are new, file info without files are deleted, the rest are checked for update
      * Save updated data
      * Set last refresh data
      * Populate metadata information
+     * Cancelled refresh stops taking new files, changes of processed files are saved but refresh date is not set
+     * Processed files are committed with the checkpoint cursor while refresh goes, refresh which was not finished
+     * is resumed from the stored cursor: files and file info before it are skipped
+     * Cursor stops moving when an operation fails, then refresh is not finished and is resumed from the last cursor
+     * In the streaming commit mode queued operations are committed in chunks by the background writer as well,
+     * so the queue is bounded and changes are visible before refresh ends
+     * Streaming and intermediate commits are done while file info is read, they are disabled when the storage
+     * does not allow it, e.g. SQLite journal mode is not WAL, then everything is committed at the end
      *
-     * @param library library to refresh
+     * @param library            library to refresh
+     * @param cancellationToken token cancelled by stopRefreshData
      */
-    private void refreshDataEx(Library library) {
+    private void refreshDataEx(Library library, CancellationToken cancellationToken) {
         LOGGER.debug("refreshDataEx started");
         if (semaphoreService.acquireGlobalAccess()) {
             try {
@@ -201,26 +389,64 @@ public class LibraryService {
                 library.resetRefreshProceedCount();
                 library.resetRefreshUpdatedCount();
 
-                Future<List<Path>> filesGetFuture = executor.submit(() -> getFiles(Paths.get(library.getPath())));
-                Future<List<FileInfo>> dbGetFuture = executor.submit(() -> getFileInfoList(library));
-
-                List<Path> files = filesGetFuture.get();
+                Path libraryPath = Paths.get(library.getPath());
+                List<FileInfo> files = getSortedFiles(libraryPath, cancellationToken);
                 LOGGER.debug("files get " + files.size());
                 LocalDateTime localDateTime = LocalDateTime.now();
 
-                Map<Path, FileInfo> fileInfoList = FileInfoHelper.listOfFileInfoToMap(Paths.get(library.getPath()), dbGetFuture.get());
-                LOGGER.debug("db file info get " + fileInfoList.size());
-
-                library.setRefreshItemsCount(files.size() + fileInfoList.size());
-
-                processFiles(library, files, fileInfoList);
+                String cursor = library.getDataService().getRefreshCursor();
+                if (cursor != null) {
+                    files = skipFilesBefore(files, cursor);
+                    LOGGER.info("Refresh is resumed from " + cursor + ", files left " + files.size());
+                }
+                library.setRefreshItemsCount(files.size() + library.getDataService().getFileInfoCount());
 
-                library.getDataService().commitFileInfo();
-                library.getDataService().updateLastRefreshDate(localDateTime);
+                if (library.getChangeFeed() != null) {
+                    // commits of the refresh are appended to the feed after they are stored
+                    library.getDataService().updateChangeFeedPending(true);
+                }
+                boolean commitDuringRead = library.getDataService().isCommitDuringReadSupported();
+                if (!commitDuringRead && (refreshCommitStreaming || refreshCheckpointSize > 0)) {
+                    LOGGER.warn("Storage does not allow commits while file info is read, refresh is committed at the end " + library);
+                }
+                boolean streaming = refreshCommitStreaming && commitDuringRead;
+                PathCheckpoint checkpoint = new PathCheckpoint(RefreshDiff.PATH_ORDER,
+                        commitDuringRead ? refreshCheckpointSize : 0);
+                List<FileUpdateOperation> failed = Collections.synchronizedList(new ArrayList<>());
+                if (streaming) {
+                    library.getDataService().startStreamingCommit(refreshCommitSize,
+                            TimeUnit.SECONDS.toMillis(refreshCommitIntervalSeconds), refreshCommitQueueSize);
+                }
+                try {
+                    processFiles(library, files, cursor, checkpoint, failed, cancellationToken);
+                } finally {
+                    if (streaming) {
+                        failed.addAll(library.getDataService().stopStreamingCommit());
+                    }
+                    if (cancellationToken.isCancelled()) {
+                        saveRefreshCheckpoint(library, checkpoint, failed);
+                    } else {
+                        failed.addAll(library.getDataService().commitFileInfo());
+                    }
+                    if (!failed.isEmpty()) {
+                        LOGGER.warn("Refresh operations failed: " + failed.size());
+                    }
+                    completeChangeFeed(library);
+                }
+                if (cancellationToken.isCancelled()) {
+                    LOGGER.info("Refresh cancelled " + library);
+                } else if (!failed.isEmpty()) {
+                    LOGGER.warn("Refresh is not finished, it is resumed from the last stored checkpoint " + library);
+                } else {
+                    library.getDataService().updateRefreshCursor(null);
+                    library.getDataService().updateLastRefreshDate(localDateTime);
+                }
 
                 library.populateMetadata();
 
-            } catch (InterruptedException | ExecutionException | IOException | LibraryDatabaseException e) {
+            } catch (CancellationException e) {
+                LOGGER.info("Refresh cancelled while files were listed " + library);
+            } catch (IOException | LibraryDatabaseException | IllegalStateException e) {
                 LOGGER.error(e);
             } finally {
                 semaphoreService.releaseGlobalAccess();
@@ -231,129 +457,200 @@ public class LibraryService {
     }
 
     /**
-     * Get file info list from passed library
-     * Throws exception to inform caller that operation was unsuccessful
-     *
-     * @param library library to get information
-     * @return list of file info
-     * @throws LibraryDatabaseException
-     */
-    private List<FileInfo> getFileInfoList(Library library) throws LibraryDatabaseException {
-        List<FileInfo> result = Collections.emptyList();
-        if (semaphoreService.acquireGlobalAccess()) {
-            try {
-                result = library.getFileInfoList();
-            } catch (LibraryDatabaseException e) {
-                LOGGER.debug("getFileInfoList was unsuccessful", e);
-                throw e;
-            } finally {
-                semaphoreService.acquireGlobalAccess();
-            }
-        }
-        return result;
-    }
-
-    /**
-     * Get the list of files
+     * Get file info of library files sorted in the order of the database
+     * Relative path, size and modified date are taken from the directory walk, files are not touched again
      * Throws an exception to inform caller that operation was unsuccessful
      * Required 1 file access approve
      *
-     * @param path directory path
-     * @return list of path
+     * @param path              library path
+     * @param cancellationToken walk is stopped by CancellationException when the token is cancelled
+     * @return sorted list of file info
      * @throws IOException
      */
-    private List<Path> getFiles(Path path) throws IOException {
-        List<Path> result;
+    private List<FileInfo> getSortedFiles(Path path, CancellationToken cancellationToken) throws IOException {
+        List<FileInfo> result = Collections.synchronizedList(new ArrayList<>());
         if (semaphoreService.acquireFilesAccess()) {
             try {
-                result = fileService.getFilesList(FileType.getExtensions(), true, path);
+                fileService.walkFiles(FileType.getExtensions(), true, path, (file, attributes) -> {
+                    cancellationToken.throwIfCancelled();
+                    FileInfo fileInfo = new FileInfo(path.relativize(file).toString());
+                    FileInfoHelper.updateFileInfo(fileInfo, attributes);
+                    result.add(fileInfo);
+                });
             } finally {
                 semaphoreService.releaseFilesAccess();
             }
-        } else {
-            result = Collections.emptyList();
         }
+        result.sort(RefreshDiff.FILE_INFO_ORDER);
         return result;
+    }
 
+    /**
+     * Files of the sorted list starting from the cursor
+     */
+    private List<FileInfo> skipFilesBefore(List<FileInfo> files, String cursor) {
+        int index = 0;
+        while (index < files.size() && RefreshDiff.PATH_ORDER.compare(files.get(index).getPath(), cursor) < 0) {
+            index++;
+        }
+        return files.subList(index, files.size());
     }
 
     /**
-     * Proceed found files and compare them with existed values to get new/updated items
-     * Next proceed with items from DB to get deleted values
+     * Commit processed operations and store the cursor of the refresh checkpoint
+     * Cursor is taken before the commit, so everything before it is committed when it is stored
+     * Cursor is not moved any more once an operation has failed, resumed refresh processes its path again
      *
-     * @param library proceed library
-     * @param files   list of files paths
-     * @param infos   map of path:fileInfo items from database
+     * @param failed failed operations of the refresh, failures of this commit and of the streaming writer are added
      */
-    private void processFiles(Library library, final List<Path> files, final Map<Path, FileInfo> infos) throws IOException {
-        ExecutorService executorService = Executors.newFixedThreadPool(semaphoreService.getMaxFilesThreadsCount());
-        CountDownLatch countDownLatch = new CountDownLatch(files.size());
-        LOGGER.debug("Proceed new or updated files");
-        for (Path path : files) {
-            executorService.submit(() -> processFile(library, path, infos.get(path), countDownLatch));
+    private void saveRefreshCheckpoint(Library library, PathCheckpoint checkpoint, List<FileUpdateOperation> failed) {
+        synchronized (checkpoint) {
+            String cursor = checkpoint.takeCursor();
+            failed.addAll(library.getDataService().commitFileInfo());
+            failed.addAll(library.getDataService().takeStreamFailedOperations());
+            if (!failed.isEmpty()) {
+                LOGGER.warn("Refresh checkpoint is not stored, failed operations: " + failed.size());
+            } else if (cursor != null) {
+                try {
+                    library.getDataService().updateRefreshCursor(cursor);
+                    LOGGER.info("Refresh checkpoint " + cursor);
+                } catch (LibraryDatabaseException e) {
+                    LOGGER.error("saveRefreshCheckpoint error", e);
+                }
+            }
         }
-        LOGGER.debug("Proceed deleted files");
-        for (Path path : infos.keySet()) {
-            executorService.submit(() -> {
-                if (semaphoreService.acquireGlobalAccess()) {
-                    try {
-                        if (!files.contains(path)) {
-                            library.getDataService().deleteFileInfo(infos.get(path));
-                            LOGGER.debug("Deleted " + path);
+    }
+
+    /**
+     * Merge sorted files with file info streamed from the database
+     * Deleted items are queued while the rows are read, hashes of new and changed files are calculated by the files pool
+     * Queue of the files pool is bounded, merge hashes the file itself when it is full
+     * On cancel the merge is stopped and queued tasks are dropped, files which are being hashed are finished
+     * Every path is started in the checkpoint when it is merged and completed when its operation is queued,
+     * processed operations are committed with the checkpoint cursor when checkpoint is due
+     * Requires global access for the database read
+     * Throws exception to inform caller that file info was not read
+     *
+     * @param library           proceed library
+     * @param files             file info of files sorted by RefreshDiff.FILE_INFO_ORDER, files before the cursor are skipped
+     * @param cursor            cursor of the resumed refresh, file info before it is skipped, null for the whole library
+     * @param checkpoint        checkpoint of the refresh
+     * @param failed            failed operations of the refresh, cursor is not stored when there are any
+     * @param cancellationToken token of the refresh
+     */
+    private void processFiles(Library library, final List<FileInfo> files, String cursor, PathCheckpoint checkpoint,
+                              List<FileUpdateOperation> failed, CancellationToken cancellationToken) throws LibraryDatabaseException {
+        Path libraryPath = Paths.get(library.getPath());
+        int filesThreadsCount = semaphoreService.getMaxFilesThreadsCount();
+        BlockingQueue<Runnable> tasks = new ArrayBlockingQueue<>(Math.max(1, refreshFilesQueueSize));
+        ExecutorService executorService = new ThreadPoolExecutor(filesThreadsCount, filesThreadsCount, 0L, TimeUnit.MILLISECONDS,
+                tasks, new ThreadPoolExecutor.CallerRunsPolicy());
+        cancellationToken.onCancel(tasks::clear);
+        FileHashCache hashCache = FileHashCache.open(libraryPath);
+        RefreshDiff refreshDiff = new RefreshDiff(files.iterator(), operation -> {
+            cancellationToken.throwIfCancelled();
+            FileInfo fileInfo = operation.getFileInfo();
+            Path path = libraryPath.resolve(fileInfo.getPath());
+            checkpoint.start(fileInfo.getPath());
+            switch (operation.getUpdateType()) {
+                case INSERT:
+                case UPDATE:
+                    boolean inserted = operation.getUpdateType() == FileUpdateOperation.UpdateType.INSERT;
+                    executorService.submit(() -> {
+                        if (processFile(library, path, fileInfo, inserted, hashCache, cancellationToken)) {
+                            completeCheckpointPath(library, checkpoint, failed, fileInfo.getPath());
                         }
-                    } finally {
-                        semaphoreService.releaseGlobalAccess();
+                    });
+                    break;
+                case DELETE:
+                    library.getDataService().deleteFileInfo(fileInfo);
+                    library.incrementRefreshProceedCount();
+                    LOGGER.debug("Deleted " + path);
+                    completeCheckpointPath(library, checkpoint, failed, fileInfo.getPath());
+                    break;
+            }
+        }, fileInfo -> {
+            library.incrementRefreshProceedCount();
+            checkpoint.start(fileInfo.getPath());
+            completeCheckpointPath(library, checkpoint, failed, fileInfo.getPath());
+        });
+        try {
+            if (!semaphoreService.acquireGlobalAccess()) {
+                throw new LibraryDatabaseException("Cannot get access to read file info");
+            }
+            try {
+                LOGGER.debug("Merge files with file info");
+                library.forEachFileInfo(fileInfo -> {
+                    if (cursor == null || RefreshDiff.PATH_ORDER.compare(fileInfo.getPath(), cursor) >= 0) {
+                        refreshDiff.accept(fileInfo);
+                    } else {
                         library.incrementRefreshProceedCount();
                     }
-                }
-            });
+                });
+            } finally {
+                semaphoreService.releaseGlobalAccess();
+            }
+            refreshDiff.finish();
+        } catch (CancellationException e) {
+            LOGGER.info("Merge cancelled");
+        } finally {
+            executorService.shutdown();
         }
-        executorService.shutdown();
         LOGGER.debug("Starting to await for tasks finish");
         try {
-            countDownLatch.await();
+            executorService.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
         } catch (InterruptedException e) {
             LOGGER.debug("Awaiting cancelled", e);
         }
+        hashCache.close();
         LOGGER.debug("Finished awaiting for tasks finish");
     }
 
-    private void processFile(Library library, Path path, FileInfo fileInfo, CountDownLatch countDownLatch) {
-        library.incrementRefreshProceedCount();
+    private void completeCheckpointPath(Library library, PathCheckpoint checkpoint, List<FileUpdateOperation> failed,
+                                        String path) {
+        if (checkpoint.complete(path)) {
+            saveRefreshCheckpoint(library, checkpoint, failed);
+        }
+    }
 
-        boolean inserted = false;
-        Path relativePath = Paths.get(library.getPath()).relativize(path);
-        if (fileInfo == null) {
-            fileInfo = new FileInfo(relativePath.toString());
-            inserted = true;
+    /**
+     * Calculate hash of new or changed file and queue its file info
+     * Hash is taken from the cache if the file was already read with the same size and modified date
+     * File is skipped if the refresh is cancelled
+     *
+     * @return false if the file was skipped, file which cannot be read is processed
+     */
+    private boolean processFile(Library library, Path path, FileInfo fileInfo, boolean inserted, FileHashCache hashCache,
+                                CancellationToken cancellationToken) {
+        if (cancellationToken.isCancelled()) {
+            return false;
         }
-        try {
-            if (semaphoreService.acquireFilesAccess()) {
-                try {
-                    if (fileService.checkFileInfoIsChangedAndUpdateIt(fileInfo, path)) {
-                        if (inserted) {
-                            fileInfo.setUuid(UUID.randomUUID());
-                            library.insertFileInfo(fileInfo);
-                            LOGGER.debug("Inserted " + path);
-                        } else {
-                            library.updateFileInfo(fileInfo);
-                            LOGGER.debug("Updated " + path);
-                        }
-                        library.incrementRefreshUpdatedCount();
-                    }
-                } catch (IOException e) {
-                    LOGGER.error("Can't proceed " + path, e);
-                } finally {
-                    semaphoreService.releaseFilesAccess();
+        library.incrementRefreshProceedCount();
+        if (semaphoreService.acquireFilesAccess()) {
+            try {
+                fileService.calculateFileInfoHash(fileInfo, path, library.getHashType(), hashCache);
+                if (inserted) {
+                    fileInfo.setUuid(UUID.randomUUID());
+                    library.insertFileInfo(fileInfo);
+                    LOGGER.debug("Inserted " + path);
+                } else {
+                    library.updateFileInfo(fileInfo);
+                    LOGGER.debug("Updated " + path);
                 }
+                library.incrementRefreshUpdatedCount();
+            } catch (IOException e) {
+                LOGGER.error("Can't proceed " + path, e);
+            } finally {
+                semaphoreService.releaseFilesAccess();
             }
-        } finally {
-            countDownLatch.countDown();
+            return true;
         }
+        return false;
     }
 
     /**
-     * Set library dataStatus to CANCELLING if current dataStatus is REFRESH
+     * Set library dataStatus to CANCELLING if current dataStatus is REFRESH and cancel the refresh
+     * Refresh stops promptly, changes of files processed before are saved
      * Doing nothing if library is not found
      *
      * @param libraryUUID uuid of library
@@ -363,7 +660,9 @@ public class LibraryService {
         if (library == null) {
             return;
         }
-        library.checkAndSetDataStatus(DataStatus.CANCELLING, REFRESH_CANCEL_ALLOWED_STATUSES);
+        if (library.checkAndSetDataStatus(DataStatus.CANCELLING, REFRESH_CANCEL_ALLOWED_STATUSES)) {
+            library.cancelRefresh();
+        }
     }
 
     public void addLibrary(Map<String, String> metaData) {
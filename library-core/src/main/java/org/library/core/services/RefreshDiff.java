@@ -0,0 +1,106 @@
+package org.library.core.services;
+
+import org.library.common.entities.FileInfo;
+import org.library.common.utils.FileInfoHelper;
+import org.library.entities.FileUpdateOperation;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.function.Consumer;
+
+/**
+ * Merge of the sorted library files and file info read from the database ordered by path
+ * Operations are emitted while the rows are read, so nothing but the current row is kept:
+ * INSERT for a file without file info, UPDATE for file info which size or modified date differ from the file
+ * and DELETE for file info without a file
+ * Files come with size and modified date read by the directory walk, so no file system call is made here,
+ * file info of UPDATE gets them and only its hash is left to calculate
+ * Paths are compared by code points, it's the order of the database binary collation of UTF-8 strings
+ */
+class RefreshDiff {
+    static final Comparator<String> PATH_ORDER = RefreshDiff::comparePaths;
+    static final Comparator<FileInfo> FILE_INFO_ORDER = Comparator.comparing(FileInfo::getPath, PATH_ORDER);
+
+    private final Iterator<FileInfo> files;
+    private final Consumer<FileUpdateOperation> consumer;
+    private final Consumer<FileInfo> unchangedConsumer;
+    private FileInfo file;
+    private String lastPath;
+
+    /**
+     * @param files             file info of library files with size and modified date sorted by FILE_INFO_ORDER
+     * @param consumer          consumer of operations
+     * @param unchangedConsumer consumer of stored file info which is the same as file
+     */
+    RefreshDiff(Iterator<FileInfo> files, Consumer<FileUpdateOperation> consumer, Consumer<FileInfo> unchangedConsumer) {
+        this.files = files;
+        this.consumer = consumer;
+        this.unchangedConsumer = unchangedConsumer;
+        this.file = nextFile();
+    }
+
+    /**
+     * Proceed next file info, file info should be passed in PATH_ORDER
+     *
+     * @param fileInfo file info from the database
+     */
+    void accept(FileInfo fileInfo) {
+        String path = fileInfo.getPath();
+        if (lastPath != null && comparePaths(lastPath, path) > 0) {
+            throw new IllegalStateException("File info is not ordered by path: " + path + " after " + lastPath);
+        }
+        lastPath = path;
+        int compare = -1;
+        while (file != null && (compare = comparePaths(file.getPath(), path)) < 0) {
+            insert(file);
+            file = nextFile();
+        }
+        if (file != null && compare == 0) {
+            update(fileInfo, file);
+            file = nextFile();
+        } else {
+            consumer.accept(new FileUpdateOperation(FileUpdateOperation.UpdateType.DELETE, fileInfo));
+        }
+    }
+
+    /**
+     * Emit inserts for files left after the last file info
+     */
+    void finish() {
+        while (file != null) {
+            insert(file);
+            file = nextFile();
+        }
+    }
+
+    private void insert(FileInfo file) {
+        consumer.accept(new FileUpdateOperation(FileUpdateOperation.UpdateType.INSERT, file));
+    }
+
+    private void update(FileInfo fileInfo, FileInfo file) {
+        if (FileInfoHelper.checkFileInfoChanged(fileInfo, file.getFileSize(), file.getModifiedDate())) {
+            fileInfo.setFileSize(file.getFileSize());
+            fileInfo.setModifiedDate(file.getModifiedDate());
+            consumer.accept(new FileUpdateOperation(FileUpdateOperation.UpdateType.UPDATE, fileInfo));
+        } else {
+            unchangedConsumer.accept(fileInfo);
+        }
+    }
+
+    private FileInfo nextFile() {
+        return files.hasNext() ? files.next() : null;
+    }
+
+    static int comparePaths(String path1, String path2) {
+        int i = 0;
+        while (i < path1.length() && i < path2.length()) {
+            int codePoint1 = path1.codePointAt(i);
+            int codePoint2 = path2.codePointAt(i);
+            if (codePoint1 != codePoint2) {
+                return Integer.compare(codePoint1, codePoint2);
+            }
+            i += Character.charCount(codePoint1);
+        }
+        return Integer.compare(path1.length(), path2.length());
+    }
+}
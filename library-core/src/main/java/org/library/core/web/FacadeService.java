@@ -4,6 +4,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.library.common.utils.LoggingUtils;
 import org.library.core.services.LibraryService;
+import org.library.entities.DuplicateWeb;
 import org.library.entities.LibraryWeb;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
@@ -11,6 +12,7 @@ import org.springframework.web.bind.annotation.*;
 
 import javax.websocket.server.PathParam;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 
 import static org.springframework.web.bind.annotation.RequestMethod.GET;
@@ -53,6 +55,16 @@ class FacadeService {
         return libraryService.getLibraries();
     }
 
+    /**
+     * Duplicates are found only between libraries with the same hash type, CRC32C libraries are not included
+     */
+    @RequestMapping(value = "/getDuplicates", produces= MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody List<DuplicateWeb> getDuplicates(@RequestParam(value = "page", defaultValue = "0") int page,
+                                                   @RequestParam(value = "size", defaultValue = "100") int size) {
+        LOGGER.debug("getDuplicates page " + page + " of " + size);
+        return libraryService.getDuplicates(page, size);
+    }
+
     @RequestMapping(value = "/debugEnabled", produces= MediaType.APPLICATION_JSON_VALUE, method = POST)
     @ResponseBody String setDebugEnabled(@RequestParam Boolean debugEnabled) {
         LOGGER.debug("setDebugEnabled " + debugEnabled);
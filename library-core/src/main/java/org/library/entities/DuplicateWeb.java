@@ -0,0 +1,82 @@
+package org.library.entities;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Files with the same content found in the registered libraries
+ */
+public class DuplicateWeb implements Serializable {
+
+    private final String hash;
+    private final long size;
+    private final List<Location> locations;
+
+    public DuplicateWeb(String hash, long size, List<Location> locations) {
+        this.hash = hash;
+        this.size = size;
+        this.locations = locations;
+    }
+
+    public String getHash() {
+        return hash;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public List<Location> getLocations() {
+        return locations;
+    }
+
+    @Override
+    public String toString() {
+        return "DuplicateWeb{" +
+                "hash='" + hash + '\'' +
+                ", size=" + size +
+                ", locations=" + locations +
+                '}';
+    }
+
+    public static class Location implements Serializable {
+        private final String libraryUuid;
+        private final String path;
+
+        public Location(String libraryUuid, String path) {
+            this.libraryUuid = libraryUuid;
+            this.path = path;
+        }
+
+        public String getLibraryUuid() {
+            return libraryUuid;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            Location that = (Location) o;
+
+            return libraryUuid.equals(that.libraryUuid) && path.equals(that.path);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * libraryUuid.hashCode() + path.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return "Location{" +
+                    "libraryUuid='" + libraryUuid + '\'' +
+                    ", path='" + path + '\'' +
+                    '}';
+        }
+    }
+}
@@ -42,6 +42,13 @@ public class FileUpdateOperation {
         isSuccess.set(true);
     }
 
+    /**
+     * Operation executed in the transaction which was rolled back is not stored
+     */
+    public void resetSuccess() {
+        isSuccess.set(false);
+    }
+
     public enum UpdateType {
         INSERT, UPDATE, DELETE
     }
@@ -1,5 +1,7 @@
 package org.library.entities;
 
+import org.library.common.utils.HashType;
+
 import java.time.LocalDateTime;
 import java.util.UUID;
 
@@ -11,6 +13,7 @@ public class LibraryMetadata {
     private LocalDateTime lastUpdateDate;
     private LocalDateTime lastRefreshDate;
     private String name;
+    private HashType hashType = HashType.MD5;
 
     public LibraryMetadata(String path) {
         this.path = path;
@@ -68,6 +71,14 @@ public class LibraryMetadata {
         this.lastRefreshDate = lastRefreshDate;
     }
 
+    public HashType getHashType() {
+        return hashType;
+    }
+
+    public void setHashType(HashType hashType) {
+        this.hashType = hashType;
+    }
+
     public String getUuid() {
         return uuid;
     }
@@ -81,6 +92,7 @@ public class LibraryMetadata {
                 ", itemsCount=" + itemsCount +
                 ", lastUpdateDate=" + lastUpdateDate +
                 ", lastRefreshDate=" + lastRefreshDate +
+                ", hashType=" + hashType +
                 '}';
     }
 
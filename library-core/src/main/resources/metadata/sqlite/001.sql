@@ -0,0 +1,2 @@
+alter table meta add column f_hash_type varchar(16) null;
+PRAGMA user_version = 2;
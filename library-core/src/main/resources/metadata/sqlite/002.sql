@@ -0,0 +1,2 @@
+alter table meta add column f_refresh_cursor varchar(1024) null;
+PRAGMA user_version = 3;
@@ -0,0 +1,2 @@
+alter table meta add column f_change_feed_pending integer null;
+PRAGMA user_version = 4;
@@ -4,6 +4,7 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.library.core.dao.DataStorage;
+import org.library.core.exceptions.LibraryDatabaseException;
 import org.library.core.services.DataServiceDBImpl;
 import org.library.common.entities.FileInfo;
 import org.library.entities.FileUpdateOperation;
@@ -140,11 +141,96 @@ public class DataServiceDBImplTest {
 
         List<FileUpdateOperation> result = service.commitFileInfo();
         assertEquals(0, service.getQueueSize());
-        assertEquals(1, result.size());
+        // transaction is not committed, so the executed insert is failed as well
+        assertEquals(2, result.size());
 
         verify(dataStorage).batchInsertFileInfo(fileInfo1);
         verify(dataStorage).batchUpdateFileInfo(fileInfo2);
+        verify(dataStorage, never()).commit();
+        assertEquals(fileInfo1, result.get(0).getFileInfo());
+        assertEquals(fileInfo2, result.get(1).getFileInfo());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testCommitFailed() throws Exception {
+        DataStorage dataStorage = mock(DataStorage.class);
+        DataServiceDBImpl service = new DataServiceDBImpl(dataStorage);
+        FileInfo fileInfo1 = new FileInfo("1");
+        FileInfo fileInfo2 = new FileInfo("2");
+        service.insertFileInfo(fileInfo1);
+        service.deleteFileInfo(fileInfo2);
+
+        doReturn(1000).when(dataStorage).getBatchSize();
+        doAnswer(invocation -> {
+            List<FileUpdateOperation> operations = (List<FileUpdateOperation>) invocation.getArguments()[0];
+            operations.forEach(FileUpdateOperation::setSuccess);
+            return null;
+        }).when(dataStorage).batchFileUpdateOperations(anyListOf(FileUpdateOperation.class));
+        doThrow(LibraryDatabaseException.class).when(dataStorage).commit();
+
+        List<FileUpdateOperation> result = service.commitFileInfo();
+        assertEquals(0, service.getQueueSize());
+        assertEquals(2, result.size());
+        assertFalse(result.get(0).getIsSuccess());
+        assertFalse(result.get(1).getIsSuccess());
+        verify(dataStorage).closeConnection();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testCommitBatched() throws Exception {
+        DataStorage dataStorage = mock(DataStorage.class);
+        DataServiceDBImpl service = new DataServiceDBImpl(dataStorage);
+        FileInfo fileInfo1 = new FileInfo("");
+        FileInfo fileInfo2 = new FileInfo("");
+        service.insertFileInfo(fileInfo1);
+        service.deleteFileInfo(fileInfo2);
+
+        doReturn(1000).when(dataStorage).getBatchSize();
+        doAnswer(invocation -> {
+            List<FileUpdateOperation> operations = (List<FileUpdateOperation>) invocation.getArguments()[0];
+            operations.get(0).setSuccess();
+            return null;
+        }).when(dataStorage).batchFileUpdateOperations(anyListOf(FileUpdateOperation.class));
+
+        List<FileUpdateOperation> result = service.commitFileInfo();
+        assertEquals(0, service.getQueueSize());
+        assertEquals(1, result.size());
         assertEquals(fileInfo2, result.get(0).getFileInfo());
+
+        verify(dataStorage).batchFileUpdateOperations(anyListOf(FileUpdateOperation.class));
+        verify(dataStorage, never()).batchInsertFileInfo(any(FileInfo.class));
+        verify(dataStorage).commit();
+    }
+
+    @Test
+    public void testStreamingCommit() throws Exception {
+        DataStorage dataStorage = mock(DataStorage.class);
+        DataServiceDBImpl service = new DataServiceDBImpl(dataStorage);
+        FileInfo fileInfo1 = new FileInfo("1");
+        FileInfo fileInfo2 = new FileInfo("2");
+        FileInfo fileInfo3 = new FileInfo("3");
+        doThrow(SQLException.class).when(dataStorage).batchInsertFileInfo(fileInfo2);
+
+        service.startStreamingCommit(2, 0, 2);
+        service.insertFileInfo(fileInfo1);
+        service.insertFileInfo(fileInfo2);
+        // queue is full until the writer takes it
+        service.insertFileInfo(fileInfo3);
+        List<FileUpdateOperation> result = service.stopStreamingCommit();
+        // the whole commit of the writer is rolled back
+        assertEquals(2, result.size());
+        assertEquals(fileInfo1, result.get(0).getFileInfo());
+        assertEquals(fileInfo2, result.get(1).getFileInfo());
+        assertEquals(1, service.getQueueSize());
+
+        result = service.commitFileInfo();
+        assertEquals(0, service.getQueueSize());
+        assertEquals(0, result.size());
+        verify(dataStorage).batchInsertFileInfo(fileInfo1);
+        verify(dataStorage).batchInsertFileInfo(fileInfo3);
+        verify(dataStorage).commit();
     }
 
     @Test
@@ -6,6 +6,7 @@ import org.junit.rules.ExpectedException;
 import org.junit.rules.TemporaryFolder;
 import org.library.core.utils.DateUtils;
 import org.library.common.entities.FileInfo;
+import org.library.entities.FileUpdateOperation;
 
 import java.net.URL;
 import java.nio.file.Files;
@@ -13,6 +14,8 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.sql.*;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.UUID;
 
@@ -320,4 +323,102 @@ public class DataStorageSQLiteTest {
         assertEquals(fileInfo2, result.get(1));
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testForEachFileInfo() throws Exception {
+        DataStorageSQLite service = spy(new DataStorageSQLite());
+        FileInfo fileInfo1 = new FileInfo(UUID.randomUUID(), "path1", "fileName1", 1L, LocalDateTime.now(), "hash1");
+
+        Connection mockConnection = mock(Connection.class);
+        doReturn(mockConnection).when(service).getConnection();
+        doNothing().when(service).updateStructure();
+
+        Statement mockStatement = mock(Statement.class);
+        doReturn(mockStatement).when(mockConnection).createStatement();
+        ResultSet mockResultSet = mock(ResultSet.class);
+        doReturn(mockResultSet).when(mockStatement).executeQuery(DataStorageSQLite.getFileInfoListSQL);
+
+        when(mockResultSet.next()).thenReturn(true, false);
+        when(mockResultSet.getString(DataStorageSQLite.Fields.UUID_FIELD.getDbFieldName()))
+                .thenReturn(fileInfo1.getUUID().toString());
+        when(mockResultSet.getString(DataStorageSQLite.Fields.FILE_PATH_FIELD.getDbFieldName()))
+                .thenReturn(fileInfo1.getPath());
+        when(mockResultSet.getString(DataStorageSQLite.Fields.FILE_NAME_FIELD.getDbFieldName()))
+                .thenReturn(fileInfo1.getFileName());
+        when(mockResultSet.getLong(DataStorageSQLite.Fields.FILE_SIZE_FIELD.getDbFieldName()))
+                .thenReturn(fileInfo1.getFileSize());
+        when(mockResultSet.getString(DataStorageSQLite.Fields.FILE_DATE_FIELD.getDbFieldName()))
+                .thenReturn(DateUtils.localDateTimeToString(fileInfo1.getModifiedDate()));
+        when(mockResultSet.getString(DataStorageSQLite.Fields.FILE_MD5_FIELD.getDbFieldName()))
+                .thenReturn(fileInfo1.getMd5Hash());
+
+        service.prepareDB();
+        List<FileInfo> result = new ArrayList<>();
+        service.forEachFileInfo(result::add);
+        assertEquals(1, result.size());
+        assertEquals(fileInfo1, result.get(0));
+        verify(mockStatement).setFetchSize(DataStorageSQLite.FETCH_SIZE);
+    }
+
+    @Test
+    public void testBatchFileUpdateOperations() throws Exception {
+        DataStorageSQLite service = spy(new DataStorageSQLite());
+        FileInfo fileInfo1 = new FileInfo(UUID.randomUUID(), "path1", "fileName1", 1L, LocalDateTime.now(), null);
+        FileInfo fileInfo2 = new FileInfo(UUID.randomUUID(), "path2", "fileName2", 2L, LocalDateTime.now(), null);
+        FileInfo fileInfo3 = new FileInfo(UUID.randomUUID(), "path3", "fileName3", 3L, LocalDateTime.now(), null);
+        FileUpdateOperation insert1 = new FileUpdateOperation(FileUpdateOperation.UpdateType.INSERT, fileInfo1);
+        FileUpdateOperation insert2 = new FileUpdateOperation(FileUpdateOperation.UpdateType.INSERT, fileInfo2);
+        FileUpdateOperation delete3 = new FileUpdateOperation(FileUpdateOperation.UpdateType.DELETE, fileInfo3);
+
+        Connection mockConnection = mock(Connection.class);
+        doReturn(mockConnection).when(service).getConnection();
+        doReturn(false).when(mockConnection).getAutoCommit();
+
+        PreparedStatement mockInsertStatement = mock(PreparedStatement.class);
+        PreparedStatement mockDeleteStatement = mock(PreparedStatement.class);
+        doReturn(mockInsertStatement).when(mockConnection).prepareStatement(DataStorageSQLite.insertFileInfoSQL);
+        doReturn(mockDeleteStatement).when(mockConnection).prepareStatement(DataStorageSQLite.deleteFileInfoSQL);
+        doReturn(new int[]{1, 1}).when(mockInsertStatement).executeBatch();
+        doReturn(new int[]{1}).when(mockDeleteStatement).executeBatch();
+
+        service.prepareBatch(false);
+        service.batchFileUpdateOperations(Arrays.asList(insert1, insert2, delete3));
+
+        verify(mockConnection, times(1)).prepareStatement(DataStorageSQLite.insertFileInfoSQL);
+        verify(mockInsertStatement, times(2)).addBatch();
+        verify(mockInsertStatement).executeBatch();
+        verify(mockDeleteStatement).executeBatch();
+        verify(mockInsertStatement, never()).executeUpdate();
+        assertTrue(insert1.getIsSuccess());
+        assertTrue(insert2.getIsSuccess());
+        assertTrue(delete3.getIsSuccess());
+    }
+
+    @Test
+    public void testBatchFileUpdateOperationsFailedRow() throws Exception {
+        DataStorageSQLite service = spy(new DataStorageSQLite());
+        FileInfo fileInfo1 = new FileInfo(UUID.randomUUID(), "path1", "fileName1", 1L, LocalDateTime.now(), null);
+        FileInfo fileInfo2 = new FileInfo(UUID.randomUUID(), "path2", "fileName2", 2L, LocalDateTime.now(), null);
+        FileUpdateOperation update1 = new FileUpdateOperation(FileUpdateOperation.UpdateType.UPDATE, fileInfo1);
+        FileUpdateOperation update2 = new FileUpdateOperation(FileUpdateOperation.UpdateType.UPDATE, fileInfo2);
+
+        Connection mockConnection = mock(Connection.class);
+        doReturn(mockConnection).when(service).getConnection();
+        doReturn(false).when(mockConnection).getAutoCommit();
+        Savepoint mockSavepoint = mock(Savepoint.class);
+        doReturn(mockSavepoint).when(mockConnection).setSavepoint();
+
+        PreparedStatement mockStatement = mock(PreparedStatement.class);
+        doReturn(mockStatement).when(mockConnection).prepareStatement(DataStorageSQLite.updateFileInfoSQL);
+        doThrow(BatchUpdateException.class).when(mockStatement).executeBatch();
+        when(mockStatement.executeUpdate()).thenReturn(1).thenThrow(SQLException.class);
+
+        service.prepareBatch(false);
+        service.batchFileUpdateOperations(Arrays.asList(update1, update2));
+
+        verify(mockConnection).rollback(mockSavepoint);
+        verify(mockStatement, times(2)).executeUpdate();
+        assertTrue(update1.getIsSuccess());
+        assertFalse(update2.getIsSuccess());
+    }
+
+}
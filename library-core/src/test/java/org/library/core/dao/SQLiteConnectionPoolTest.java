@@ -0,0 +1,58 @@
+package org.library.core.dao;
+
+import org.junit.Test;
+
+import java.sql.Connection;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class SQLiteConnectionPoolTest {
+
+    @Test
+    public void testWriterIsReused() throws Exception {
+        SQLiteConnectionPool.ConnectionFactory connectionFactory = mock(SQLiteConnectionPool.ConnectionFactory.class);
+        Connection mockConnection = mock(Connection.class);
+        doReturn(mockConnection).when(connectionFactory).createConnection();
+        SQLiteConnectionPool pool = new SQLiteConnectionPool(connectionFactory, 1);
+
+        assertSame(mockConnection, pool.getWriter());
+        assertSame(mockConnection, pool.getWriter());
+
+        verify(connectionFactory, times(1)).createConnection();
+    }
+
+    @Test
+    public void testReleasedConnectionIsBorrowedAgain() throws Exception {
+        SQLiteConnectionPool.ConnectionFactory connectionFactory = mock(SQLiteConnectionPool.ConnectionFactory.class);
+        Connection mockConnection1 = mock(Connection.class);
+        Connection mockConnection2 = mock(Connection.class);
+        when(connectionFactory.createConnection()).thenReturn(mockConnection1, mockConnection2);
+        SQLiteConnectionPool pool = new SQLiteConnectionPool(connectionFactory, 1);
+
+        Connection connection1 = pool.borrow();
+        Connection connection2 = pool.borrow();
+        pool.release(connection1);
+        pool.release(connection2);
+
+        assertSame(mockConnection1, pool.borrow());
+        verify(mockConnection1, never()).close();
+        verify(mockConnection2).close();
+    }
+
+    @Test
+    public void testClose() throws Exception {
+        SQLiteConnectionPool.ConnectionFactory connectionFactory = mock(SQLiteConnectionPool.ConnectionFactory.class);
+        Connection mockWriter = mock(Connection.class);
+        Connection mockReader = mock(Connection.class);
+        when(connectionFactory.createConnection()).thenReturn(mockWriter, mockReader);
+        SQLiteConnectionPool pool = new SQLiteConnectionPool(connectionFactory, 1);
+
+        pool.getWriter();
+        pool.release(pool.borrow());
+        pool.close();
+
+        verify(mockWriter).close();
+        verify(mockReader).close();
+    }
+}
@@ -0,0 +1,93 @@
+package org.library.core.services;
+
+import org.junit.Test;
+import org.library.common.entities.FileInfo;
+import org.library.entities.DuplicateWeb;
+import org.library.entities.FileUpdateOperation;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class DuplicateIndexTest {
+    private static final String LIBRARY_1 = "library1";
+    private static final String LIBRARY_2 = "library2";
+
+    @Test
+    public void testDuplicatesAcrossLibraries() throws Exception {
+        DuplicateIndex index = new DuplicateIndex();
+        index.put(LIBRARY_1, file("a.fb2", "hash1", 10L));
+        index.put(LIBRARY_2, file("b/a.fb2", "hash1", 10L));
+        index.put(LIBRARY_2, file("c.fb2", "hash1", 11L));
+        index.put(LIBRARY_2, file("d.fb2", null, 10L));
+
+        List<DuplicateWeb> duplicates = index.getDuplicates(0, 10);
+        assertEquals(1, duplicates.size());
+        assertEquals("hash1", duplicates.get(0).getHash());
+        assertEquals(10L, duplicates.get(0).getSize());
+        assertEquals(2, duplicates.get(0).getLocations().size());
+        assertTrue(duplicates.get(0).getLocations().contains(new DuplicateWeb.Location(LIBRARY_2, "b/a.fb2")));
+        assertEquals(1, index.getDuplicatesCount());
+    }
+
+    @Test
+    public void testHashTypes() throws Exception {
+        DuplicateIndex index = new DuplicateIndex();
+        index.put(LIBRARY_1, file("a.fb2", "crc32c:e3069283", 10L));
+        index.put(LIBRARY_2, file("a.fb2", "crc32c:e3069283", 10L));
+        assertEquals(0, index.getDuplicatesCount());
+
+        index.put(LIBRARY_1, file("b.fb2", "xxh64:44bc2cf5ad770999", 10L));
+        index.put(LIBRARY_2, file("b.fb2", "900150983cd24fb0d6963f7d28e17f72", 10L));
+        assertEquals(0, index.getDuplicatesCount());
+        index.put(LIBRARY_2, file("c.fb2", "xxh64:44bc2cf5ad770999", 10L));
+        assertEquals(1, index.getDuplicatesCount());
+    }
+
+    @Test
+    public void testCommittedOperations() throws Exception {
+        DuplicateIndex index = new DuplicateIndex();
+        index.put(LIBRARY_1, file("a.fb2", "hash1", 10L));
+        index.accept(LIBRARY_2, new FileUpdateOperation(FileUpdateOperation.UpdateType.INSERT, file("a.fb2", "hash1", 10L)));
+        assertEquals(1, index.getDuplicatesCount());
+
+        index.accept(LIBRARY_2, new FileUpdateOperation(FileUpdateOperation.UpdateType.UPDATE, file("a.fb2", "hash2", 10L)));
+        assertEquals(0, index.getDuplicatesCount());
+        index.put(LIBRARY_1, file("b.fb2", "hash2", 10L));
+        assertEquals("hash2", index.getDuplicates(0, 10).get(0).getHash());
+        index.remove(LIBRARY_1, "b.fb2");
+
+        index.accept(LIBRARY_2, new FileUpdateOperation(FileUpdateOperation.UpdateType.UPDATE, file("a.fb2", "hash1", 10L)));
+        assertEquals(1, index.getDuplicatesCount());
+        index.accept(LIBRARY_1, new FileUpdateOperation(FileUpdateOperation.UpdateType.DELETE, file("a.fb2", "hash1", 10L)));
+        assertEquals(0, index.getDuplicatesCount());
+    }
+
+    @Test
+    public void testPages() throws Exception {
+        DuplicateIndex index = new DuplicateIndex();
+        for (long size = 1; size <= 5; size++) {
+            index.put(LIBRARY_1, file("a" + size, "hash", size));
+            index.put(LIBRARY_2, file("a" + size, "hash", size));
+        }
+        List<DuplicateWeb> first = index.getDuplicates(0, 2);
+        List<DuplicateWeb> last = index.getDuplicates(2, 2);
+        assertEquals(2, first.size());
+        assertEquals(5L, first.get(0).getSize());
+        assertEquals(4L, first.get(1).getSize());
+        assertEquals(1, last.size());
+        assertEquals(1L, last.get(0).getSize());
+        assertTrue(index.getDuplicates(3, 2).isEmpty());
+
+        index.remove(LIBRARY_2, "a5");
+        assertEquals(4, index.getDuplicatesCount());
+        assertEquals(4L, index.getDuplicates(0, 2).get(0).getSize());
+    }
+
+    private static FileInfo file(String path, String hash, Long size) {
+        FileInfo result = new FileInfo(path);
+        result.setMd5Hash(hash);
+        result.setFileSize(size);
+        return result;
+    }
+}
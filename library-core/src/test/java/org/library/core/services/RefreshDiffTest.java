@@ -0,0 +1,88 @@
+package org.library.core.services;
+
+import org.junit.Test;
+import org.library.common.entities.FileInfo;
+import org.library.entities.FileUpdateOperation;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class RefreshDiffTest {
+    private static final LocalDateTime MODIFIED_DATE = LocalDateTime.of(2016, 1, 1, 0, 0);
+
+    @Test
+    public void testMerge() throws Exception {
+        List<FileUpdateOperation> operations = new ArrayList<>();
+        List<FileInfo> unchanged = new ArrayList<>();
+        RefreshDiff refreshDiff = new RefreshDiff(
+                Arrays.asList(file("a.fb2", 1L), file("c.fb2", 2L), file("e.fb2", 3L), file("f.fb2", 4L)).iterator(),
+                operations::add, unchanged::add);
+
+        refreshDiff.accept(file("b.fb2", 1L));
+        refreshDiff.accept(file("c.fb2", 1L));
+        refreshDiff.accept(file("d.fb2", 1L));
+        refreshDiff.accept(file("e.fb2", 3L));
+        refreshDiff.finish();
+
+        assertEquals(5, operations.size());
+        assertOperation(FileUpdateOperation.UpdateType.INSERT, "a.fb2", operations.get(0));
+        assertOperation(FileUpdateOperation.UpdateType.DELETE, "b.fb2", operations.get(1));
+        assertOperation(FileUpdateOperation.UpdateType.UPDATE, "c.fb2", operations.get(2));
+        assertEquals(Long.valueOf(2L), operations.get(2).getFileInfo().getFileSize());
+        assertOperation(FileUpdateOperation.UpdateType.DELETE, "d.fb2", operations.get(3));
+        assertOperation(FileUpdateOperation.UpdateType.INSERT, "f.fb2", operations.get(4));
+        assertEquals(1, unchanged.size());
+        assertEquals("e.fb2", unchanged.get(0).getPath());
+    }
+
+    @Test
+    public void testDuplicatedFileInfoIsDeleted() throws Exception {
+        List<FileUpdateOperation> operations = new ArrayList<>();
+        List<FileInfo> unchanged = new ArrayList<>();
+        RefreshDiff refreshDiff = new RefreshDiff(Arrays.asList(file("a.fb2", 1L)).iterator(),
+                operations::add, unchanged::add);
+
+        refreshDiff.accept(file("a.fb2", 1L));
+        refreshDiff.accept(file("a.fb2", 1L));
+        refreshDiff.finish();
+
+        assertEquals(1, unchanged.size());
+        assertEquals(1, operations.size());
+        assertOperation(FileUpdateOperation.UpdateType.DELETE, "a.fb2", operations.get(0));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testNotOrderedFileInfo() throws Exception {
+        RefreshDiff refreshDiff = new RefreshDiff(new ArrayList<FileInfo>().iterator(), operation -> {
+        }, fileInfo -> {
+        });
+
+        refreshDiff.accept(new FileInfo("b.fb2"));
+        refreshDiff.accept(new FileInfo("a.fb2"));
+    }
+
+    @Test
+    public void testComparePathsByCodePoints() throws Exception {
+        String supplementary = new String(Character.toChars(0x1F600));
+        String privateUse = "\uE000";
+
+        assertTrue(RefreshDiff.comparePaths("a", "b") < 0);
+        assertTrue(RefreshDiff.comparePaths("a", "ab") < 0);
+        assertEquals(0, RefreshDiff.comparePaths("ab", "ab"));
+        assertTrue("string compareTo is different", supplementary.compareTo(privateUse) < 0);
+        assertTrue(RefreshDiff.comparePaths(supplementary, privateUse) > 0);
+    }
+
+    private FileInfo file(String path, Long fileSize) {
+        return new FileInfo(null, path, path, fileSize, MODIFIED_DATE, null);
+    }
+
+    private void assertOperation(FileUpdateOperation.UpdateType updateType, String path, FileUpdateOperation operation) {
+        assertEquals(updateType, operation.getUpdateType());
+        assertEquals(path, operation.getFileInfo().getPath());
+    }
+}
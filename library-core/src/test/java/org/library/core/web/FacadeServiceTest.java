@@ -3,8 +3,11 @@ package org.library.core.web;
 import org.junit.Test;
 import org.library.common.utils.LoggingUtils;
 import org.library.core.services.LibraryService;
+import org.library.entities.DuplicateWeb;
 
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
@@ -46,6 +49,17 @@ public class FacadeServiceTest {
         assertEquals(expectedResult, result);
     }
 
+    @Test
+    public void getDuplicates() throws Exception {
+        LibraryService mockLibraryService = mock(LibraryService.class);
+        FacadeService service = new FacadeService(mockLibraryService);
+        List<DuplicateWeb> expectedResult = Collections.singletonList(
+                new DuplicateWeb("hash", 10L, Collections.singletonList(new DuplicateWeb.Location("uuid", "path"))));
+        when(mockLibraryService.getDuplicates(1, 20)).thenReturn(expectedResult);
+        List<DuplicateWeb> result = service.getDuplicates(1, 20);
+        assertEquals(expectedResult, result);
+    }
+
     @Test
     public void setDebugEnabledTrue() throws Exception {
         LibraryService mockLibraryService = mock(LibraryService.class);
@@ -4,6 +4,8 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.library.common.entities.FileType;
 import org.library.common.utils.FileUtils;
+import org.library.common.utils.ParseProfile;
+import org.library.parser.parser.Parser;
 import org.library.parser.parser.ParserFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -11,35 +13,49 @@ import org.springframework.boot.ApplicationArguments;
 import org.springframework.boot.ApplicationRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.context.annotation.Bean;
 
+import java.io.IOException;
 import java.nio.file.Path;
-import java.util.LinkedList;
+import java.nio.file.Paths;
 import java.util.List;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.concurrent.*;
 
 import org.library.common.services.*;
 
 @SpringBootApplication
 public class Application implements ApplicationRunner {
     private static Logger LOGGER = LogManager.getLogger(Application.class);
+    private static final long PARSERS_STOP_TIMEOUT_SECONDS = 60;
     private SemaphoreService semaphoreService;
 
     public static void main(String[] args) {
-        SpringApplication.run(Application.class, args);
+        SpringApplication application = new SpringApplication(Application.class);
+        // context is closed by the own shutdown hook after running parsers are stopped
+        application.setRegisterShutdownHook(false);
+        application.run(args);
     }
 
     @Bean
-    public FileService fileService() {
-        return new FileServiceImpl();
+    public FileService fileService(@Value("${threads.walk.count:8}") int walkThreadsCount) {
+        return new FileServiceImpl(walkThreadsCount);
     }
 
     @Bean
-    public ParseFileService parseFileService() {
-        return new ParseFileService();
+    public ParseFileService parseFileService(@Value("${parser.profile:full}") String parseProfileName,
+                                             @Value("${parser.cover.store:}") String coverStorePath,
+                                             @Value("${parser.header.tree:true}") boolean headerTree) throws IOException {
+        ParseProfile parseProfile = ParseProfile.getParseProfileByName(parseProfileName);
+        if (parseProfile == null) {
+            throw new IllegalArgumentException("Unknown parse profile: " + parseProfileName);
+        }
+        CoverStore coverStore = null;
+        if (!coverStorePath.isEmpty()) {
+            coverStore = new CoverStore(Paths.get(coverStorePath));
+            LOGGER.info("Covers are stored in " + coverStore.getRoot());
+        }
+        return new ParseFileService(parseProfile, coverStore, headerTree);
     }
 
     @Bean
@@ -54,8 +70,15 @@ public class Application implements ApplicationRunner {
     @Autowired
     private ParserFactory parserFactory;
 
+    @Autowired
+    private ConfigurableApplicationContext applicationContext;
+
+    private final List<Parser> parsers = new CopyOnWriteArrayList<>();
+    private final List<Future<Boolean>> futures = new CopyOnWriteArrayList<>();
+
     @Override
     public void run(ApplicationArguments applicationArguments) throws Exception {
+        Runtime.getRuntime().addShutdownHook(new Thread(this::stopParsers, "parsers-shutdown"));
         System.out.println("===Library parserImpl===");
         System.out.print("Available extensions: ");
         FileType.getExtensions().stream().forEach(ex -> System.out.print(ex.toUpperCase().substring(1) + " "));
@@ -73,11 +96,12 @@ public class Application implements ApplicationRunner {
     private boolean runParsers(List<String> paths) {
         // get list of files
         ExecutorService executor = Executors.newCachedThreadPool();
-        List<Future<Boolean>> futures = new LinkedList<>();
         for (String stringPath : paths) {
             Path path = FileUtils.stringToExistingDirectoryPath(stringPath);
             if (path != null) {
-                futures.add(executor.submit(parserFactory.createParser(path)));
+                Parser parser = parserFactory.createParser(path);
+                parsers.add(parser);
+                futures.add(executor.submit(parser));
             } else {
                 LOGGER.error("Path isn't a folder or doesn't exists: " + stringPath);
             }
@@ -98,4 +122,19 @@ public class Application implements ApplicationRunner {
         return result;
     }
 
+    /**
+     * Cancel running parsers on JVM shutdown (e.g. Ctrl+C) and wait until parsed files are saved, then close the context
+     */
+    private void stopParsers() {
+        parsers.forEach(Parser::cancel);
+        for (Future<Boolean> future : futures) {
+            try {
+                future.get(PARSERS_STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } catch (InterruptedException | ExecutionException | TimeoutException e) {
+                LOGGER.error("Parser is not stopped: ", e);
+            }
+        }
+        applicationContext.close();
+    }
+
 }
@@ -0,0 +1,89 @@
+package org.library.parser.parser;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Kind of executors used for the blocking I/O stages of the parser
+ */
+public enum ExecutorType {
+    /**
+     * Fixed pools of platform threads
+     */
+    PLATFORM("platform"),
+    /**
+     * New virtual thread per task, available since Java 21
+     */
+    VIRTUAL("virtual");
+
+    private static final Logger LOGGER = LogManager.getLogger(ExecutorType.class);
+    private static final String VIRTUAL_EXECUTOR_METHOD = "newVirtualThreadPerTaskExecutor";
+
+    private final String name;
+
+    ExecutorType(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return false if current JVM doesn't provide the executor
+     */
+    public boolean isSupported() {
+        return this != VIRTUAL || getVirtualExecutorMethod() != null;
+    }
+
+    /**
+     * Create executor for the blocking stage
+     *
+     * @param threadsCount count of threads for the platform pool, ignored for virtual threads
+     * @return executor service
+     * @throws IllegalStateException if virtual threads are not supported by current JVM
+     */
+    ExecutorService createExecutor(int threadsCount) {
+        if (this == VIRTUAL) {
+            return createVirtualThreadExecutor();
+        }
+        return Executors.newFixedThreadPool(threadsCount);
+    }
+
+    private static ExecutorService createVirtualThreadExecutor() {
+        Method method = getVirtualExecutorMethod();
+        if (method == null) {
+            throw new IllegalStateException("Virtual threads are not supported by current JVM");
+        }
+        try {
+            return (ExecutorService) method.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot create virtual thread executor", e);
+        }
+    }
+
+    /**
+     * Project is compiled for Java 8, so the method is looked up at runtime
+     */
+    private static Method getVirtualExecutorMethod() {
+        try {
+            return Executors.class.getMethod(VIRTUAL_EXECUTOR_METHOD);
+        } catch (NoSuchMethodException e) {
+            LOGGER.debug("Virtual threads are not supported by current JVM");
+            return null;
+        }
+    }
+
+    public static ExecutorType getExecutorTypeByName(String name) {
+        for (ExecutorType executorType : values()) {
+            if (executorType.getName().equalsIgnoreCase(name)) {
+                return executorType;
+            }
+        }
+        return null;
+    }
+}
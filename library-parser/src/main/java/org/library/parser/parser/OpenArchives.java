@@ -0,0 +1,151 @@
+package org.library.parser.parser;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.zip.ZipFile;
+
+/**
+ * Archives opened for the entries in flight
+ * Archive is opened by the first acquire and shared by all entries, ZipFile reads entries concurrently,
+ * so entries of one archive are parsed by several workers at once
+ * Released archive stays open while count of idle archives doesn't exceed maxIdle,
+ * entries of an archive come together, so the archive is not opened again for its next entries
+ * Archive is opened outside of the lock by the first acquire, other acquires of the same archive wait for it,
+ * acquires of other archives are not blocked
+ */
+class OpenArchives implements AutoCloseable {
+    private static final Logger LOGGER = LogManager.getLogger(OpenArchives.class);
+
+    private final Path basePath;
+    private final int maxIdle;
+    private final Map<String, Holder> archives = new LinkedHashMap<>();
+    private int idleCount;
+
+    /**
+     * @param basePath library path
+     * @param maxIdle  max count of open archives without entries in flight
+     */
+    OpenArchives(Path basePath, int maxIdle) {
+        this.basePath = basePath;
+        this.maxIdle = maxIdle;
+    }
+
+    /**
+     * Open the archive or take the opened one, every acquire should be followed by release
+     * Archive which cannot be opened is forgotten, so the next acquire tries to open it again
+     *
+     * @param archivePath relative path of the archive
+     * @return archive
+     * @throws IOException if archive cannot be opened
+     */
+    ZipFile acquire(String archivePath) throws IOException {
+        Holder holder;
+        boolean opening = false;
+        synchronized (this) {
+            holder = archives.get(archivePath);
+            if (holder == null) {
+                holder = new Holder(new FutureTask<>(() -> openArchive(archivePath)));
+                archives.put(archivePath, holder);
+                opening = true;
+            } else if (holder.references == 0) {
+                idleCount--;
+            }
+            holder.references++;
+        }
+        if (opening) {
+            holder.zipFile.run();
+        }
+        try {
+            return holder.zipFile.get();
+        } catch (ExecutionException e) {
+            forget(archivePath, holder);
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Cannot open archive " + archivePath, e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            release(archivePath);
+            throw new InterruptedIOException("Interrupted while archive is opened " + archivePath);
+        }
+    }
+
+    synchronized void release(String archivePath) {
+        Holder holder = archives.get(archivePath);
+        if (holder == null || holder.references == 0) {
+            throw new IllegalStateException("Archive is not acquired: " + archivePath);
+        }
+        if (--holder.references == 0) {
+            idleCount++;
+            closeEldestIdle();
+        }
+    }
+
+    private ZipFile openArchive(String archivePath) throws IOException {
+        LOGGER.debug("Opening archive " + archivePath);
+        return new ZipFile(basePath.resolve(archivePath).toFile());
+    }
+
+    /**
+     * Drop the reference of the archive which was not opened, holder is removed unless it was replaced already
+     */
+    private synchronized void forget(String archivePath, Holder holder) {
+        holder.references--;
+        if (archives.get(archivePath) == holder) {
+            archives.remove(archivePath);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        for (Map.Entry<String, Holder> entry : archives.entrySet()) {
+            closeArchive(entry.getKey(), entry.getValue());
+        }
+        archives.clear();
+        idleCount = 0;
+    }
+
+    private void closeEldestIdle() {
+        Iterator<Map.Entry<String, Holder>> iterator = archives.entrySet().iterator();
+        while (idleCount > maxIdle && iterator.hasNext()) {
+            Map.Entry<String, Holder> entry = iterator.next();
+            if (entry.getValue().references == 0) {
+                closeArchive(entry.getKey(), entry.getValue());
+                iterator.remove();
+                idleCount--;
+            }
+        }
+    }
+
+    private void closeArchive(String archivePath, Holder holder) {
+        LOGGER.debug("Closing archive " + archivePath);
+        try {
+            holder.zipFile.get().close();
+        } catch (ExecutionException e) {
+            LOGGER.debug("Archive was not opened " + archivePath);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.error("Interrupted while archive is closed " + archivePath, e);
+        } catch (IOException e) {
+            LOGGER.error("Cannot close archive " + archivePath, e);
+        }
+    }
+
+    private static class Holder {
+        private final FutureTask<ZipFile> zipFile;
+        private int references;
+
+        Holder(FutureTask<ZipFile> zipFile) {
+            this.zipFile = zipFile;
+        }
+    }
+}
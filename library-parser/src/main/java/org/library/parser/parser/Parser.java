@@ -4,4 +4,8 @@ import java.util.concurrent.Callable;
 
 public interface Parser extends Callable<Boolean> {
 
+    /**
+     * Stop taking new files, files in progress are parsed and saved, call returns false
+     */
+    void cancel();
 }
@@ -3,11 +3,14 @@ package org.library.parser.parser;
 import org.library.common.services.FileService;
 import org.library.common.services.ParseFileService;
 import org.library.common.services.SemaphoreService;
+import org.library.common.utils.HashType;
+import org.library.common.utils.ObjectPool;
 import org.library.parser.services.ParserStorageService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import javax.xml.parsers.SAXParser;
 import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.Collections;
@@ -15,6 +18,8 @@ import java.util.List;
 
 @Component
 public class ParserFactory {
+    private static final String DATABASE_MODE_INCREMENTAL = "incremental";
+    private static final String PARSER_SOURCE_CHANGES = "changes";
 
     @Autowired
     private FileService fileService;
@@ -29,25 +34,151 @@ public class ParserFactory {
     ParserStorageService parserStorageService;
 
     private boolean calcMD5hash;
+    private HashType hashType = HashType.MD5;
     private String allowedExtensions;
+    private ParserMode parserMode;
+    private int pipelineQueueSize;
+    private ExecutorType executorType;
+    private int virtualConcurrency;
+    private int virtualPoolSize;
+    private SemaphoreService virtualSemaphoreService;
+    private ParseFileService virtualParseFileService;
+    private int saveBatchSize;
+    private long saveBatchFlushInterval;
+    private boolean incremental;
+    private boolean changesSource;
+    private int checkpointSize;
 
     @Autowired
     public void setCalcMD5hash(@Value("${fileinfo.calcMD5hash}") boolean calcMD5hash) {
         this.calcMD5hash = calcMD5hash;
     }
 
+    @Autowired
+    public void setHashType(@Value("${fileinfo.hash.type:md5}") String hashType) {
+        this.hashType = HashType.getHashTypeByName(hashType);
+        if (this.hashType == null || !this.hashType.isSupported()) {
+            throw new IllegalArgumentException("Unsupported hash type: " + hashType);
+        }
+    }
+
     @Autowired
     public void setAllowedExtensions(@Value("${allowed.extensions}") String allowedExtensions) {
         this.allowedExtensions = allowedExtensions;
     }
 
+    @Autowired
+    public void setParserMode(@Value("${parser.mode:futures}") String parserMode) {
+        this.parserMode = ParserMode.getParserModeByName(parserMode);
+        if (this.parserMode == null) {
+            throw new IllegalArgumentException("Unknown parser mode: " + parserMode);
+        }
+    }
+
+    @Autowired
+    public void setPipelineQueueSize(@Value("${parser.pipeline.queue.size:1000}") int pipelineQueueSize) {
+        this.pipelineQueueSize = pipelineQueueSize;
+    }
+
+    @Autowired
+    public void setExecutorType(@Value("${parser.executor.type:platform}") String executorType) {
+        this.executorType = ExecutorType.getExecutorTypeByName(executorType);
+        if (this.executorType == null) {
+            throw new IllegalArgumentException("Unknown executor type: " + executorType);
+        }
+        if (!this.executorType.isSupported()) {
+            throw new IllegalArgumentException("Executor type is not supported by current JVM: " + executorType);
+        }
+    }
+
+    @Autowired
+    public void setVirtualConcurrency(@Value("${parser.executor.virtual.concurrency:1000}") int virtualConcurrency) {
+        this.virtualConcurrency = virtualConcurrency;
+    }
+
+    /**
+     * Count of SAX parsers shared by virtual threads instead of keeping one per thread
+     */
+    @Autowired
+    public void setVirtualPoolSize(@Value("${parser.executor.virtual.pool.size:64}") int virtualPoolSize) {
+        this.virtualPoolSize = virtualPoolSize;
+    }
+
+    @Autowired
+    public void setSaveBatchSize(@Value("${storage.batch.size:0}") int saveBatchSize) {
+        this.saveBatchSize = saveBatchSize;
+    }
+
+    @Autowired
+    public void setSaveBatchFlushInterval(@Value("${storage.batch.flush.interval:1000}") long saveBatchFlushInterval) {
+        this.saveBatchFlushInterval = saveBatchFlushInterval;
+    }
+
+    @Autowired
+    public void setDatabaseMode(@Value("${database.mode}") String databaseMode) {
+        this.incremental = DATABASE_MODE_INCREMENTAL.equalsIgnoreCase(databaseMode);
+    }
+
+    /**
+     * Count of saved files between checkpoints of the walk, 0 stores the checkpoint only when parser is cancelled
+     */
+    @Autowired
+    public void setCheckpointSize(@Value("${parser.checkpoint.size:1000}") int checkpointSize) {
+        this.checkpointSize = checkpointSize;
+    }
+
+    /**
+     * walk: every parse walks the whole library folder
+     * changes: files changed since the previous parse are taken from the change feed written by the core refresh
+     */
+    @Autowired
+    public void setParserSource(@Value("${parser.source:walk}") String parserSource) {
+        this.changesSource = PARSER_SOURCE_CHANGES.equalsIgnoreCase(parserSource);
+    }
+
     public Parser createParser(Path path) {
-        ParserImpl parser = new ParserImpl(fileService, parseFileService, semaphoreService, parserStorageService, path);
+        ParserImpl parser;
+        if (executorType == ExecutorType.VIRTUAL) {
+            parser = new ParserImpl(fileService, getVirtualParseFileService(), getVirtualSemaphoreService(), parserStorageService, path);
+        } else {
+            parser = new ParserImpl(fileService, parseFileService, semaphoreService, parserStorageService, path);
+        }
         parser.setCalcMD5hash(calcMD5hash);
+        parser.setHashType(hashType);
         parser.setAllowedExtensions(getAllowedExtensionsList(allowedExtensions));
+        parser.setParserMode(parserMode);
+        parser.setPipelineQueueSize(pipelineQueueSize);
+        parser.setExecutorType(executorType);
+        parser.setSaveBatchSize(saveBatchSize);
+        parser.setSaveBatchFlushInterval(saveBatchFlushInterval);
+        parser.setIncremental(incremental);
+        parser.setChangesSource(changesSource);
+        parser.setCheckpointSize(checkpointSize);
         return parser;
     }
 
+    /**
+     * Virtual threads are cheap, so files access is limited by the configured concurrency instead of thread counts
+     * Semaphore service is shared by the parsers of the factory
+     */
+    private synchronized SemaphoreService getVirtualSemaphoreService() {
+        if (virtualSemaphoreService == null) {
+            virtualSemaphoreService = new SemaphoreService(Runtime.getRuntime().availableProcessors(), virtualConcurrency);
+        }
+        return virtualSemaphoreService;
+    }
+
+    /**
+     * Virtual thread is created per file, so SAX parsers are shared by the bounded pool of the factory
+     * instead of being kept by the thread, other users of the parse service keep parsers of their threads
+     */
+    private synchronized ParseFileService getVirtualParseFileService() {
+        if (virtualParseFileService == null) {
+            virtualParseFileService = parseFileService.withSaxParserPool(new ObjectPool<>(virtualPoolSize));
+        }
+        return virtualParseFileService;
+    }
+
     private List<String> getAllowedExtensionsList(String allowedExtensions) {
         List<String> extensions;
         if (allowedExtensions == null) {
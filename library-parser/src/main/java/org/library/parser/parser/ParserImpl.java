@@ -2,6 +2,7 @@ package org.library.parser.parser;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.library.common.entities.FileInfo;
 import org.library.common.entities.FileType;
 import org.library.common.entities.Library;
 import org.library.common.entities.ParsedFile;
@@ -9,15 +10,30 @@ import org.library.common.entities.ParsedFilesStatus;
 import org.library.common.services.FileService;
 import org.library.common.services.ParseFileService;
 import org.library.common.services.SemaphoreService;
+import org.library.common.utils.ArchiveFiles;
+import org.library.common.utils.CancellationToken;
+import org.library.common.utils.ChangeFeed;
+import org.library.common.utils.FileHashCache;
 import org.library.common.utils.FileInfoHelper;
+import org.library.common.utils.FileUtils;
+import org.library.common.utils.HashType;
+import org.library.common.utils.PathCheckpoint;
+import org.library.parser.services.ParsedFileBatchWriter;
 import org.library.parser.services.ParserStorageService;
 
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.List;
+import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 public class ParserImpl implements Parser {
     private static final Logger LOGGER = LogManager.getLogger(ParserImpl.class);
@@ -29,6 +45,22 @@ public class ParserImpl implements Parser {
     private final ParserStorageService parserStorageService;
     private List<String> allowedExtensions;
     private boolean calcMD5hash;
+    private HashType hashType = HashType.MD5;
+    private ParserMode parserMode = ParserMode.FUTURES;
+    private ExecutorType executorType = ExecutorType.PLATFORM;
+    private int pipelineQueueSize;
+    private int saveBatchSize;
+    private long saveBatchFlushInterval;
+    private ParsedFileBatchWriter batchWriter;
+    private boolean incremental;
+    private Map<String, FileInfo> storedFileInfo;
+    private FileHashCache hashCache;
+    private OpenArchives openArchives;
+    private boolean changesSource;
+    private ChangeFeed.Changes changeFeedEnd;
+    private final CancellationToken cancellationToken = new CancellationToken();
+    private int checkpointSize;
+    private PathCheckpoint checkpoint;
 
     ParserImpl(FileService fileService, ParseFileService parseFileService, SemaphoreService semaphoreService, ParserStorageService parserStorageService, Path path) {
         this.path = path;
@@ -42,48 +74,315 @@ public class ParserImpl implements Parser {
     public Boolean call() throws Exception {
         Boolean result = true;
         Library library = registerLibrary(path);
-        List<Path> files = getFilesList();
-        ParsedFilesStatus status = new ParsedFilesStatus(files.size());
-        proceedFiles(library, status, files);
+        ChangeFeed.Changes changes = changesSource ? readChanges(library) : null;
+        Set<String> changedPaths = null;
+        String resumeCursor = null;
+        List<FileInfo> files;
+        if (changes != null) {
+            changedPaths = getChangedPaths(changes.getChanges());
+            files = getChangedFilesList(changedPaths);
+        } else {
+            files = getFilesList();
+            files.sort(Comparator.comparing(FileInfo::getPath));
+            resumeCursor = library.getParseCursor();
+            if (resumeCursor != null) {
+                files = skipFilesBefore(files, resumeCursor);
+                LOGGER.info("Parse is resumed from " + resumeCursor + ", files left " + files.size());
+            }
+            checkpoint = new PathCheckpoint(Comparator.naturalOrder(), checkpointSize);
+        }
+        if (cancellationToken.isCancelled()) {
+            LOGGER.info("Parser cancelled " + this);
+            return false;
+        }
+        if (calcMD5hash) {
+            hashCache = FileHashCache.open(path);
+        }
+        openArchives = new OpenArchives(path, semaphoreService.getMaxFilesThreadsCount());
+        try {
+            if (incremental && (changedPaths == null || !changedPaths.isEmpty())) {
+                prepareIncremental(library, files, changedPaths, resumeCursor);
+            }
+            ParsedFilesStatus status = new ParsedFilesStatus(files.size());
+            proceedFiles(library, status, files);
+            LOGGER.info("Unchanged: " + status.getUnchangedCount().sum());
+            if (cancellationToken.isCancelled()) {
+                LOGGER.info("Parser cancelled " + this);
+                if (checkpoint != null) {
+                    saveCheckpoint(library);
+                }
+                result = false;
+            } else {
+                saveFinishedParse(library, changes, resumeCursor != null);
+            }
+        } finally {
+            if (hashCache != null) {
+                hashCache.close();
+                hashCache = null;
+            }
+            openArchives.close();
+            storedFileInfo = null;
+            changeFeedEnd = null;
+            checkpoint = null;
+        }
         return result;
     }
 
-    private void proceedFiles(Library library, ParsedFilesStatus status, List<Path> files) {
-        LOGGER.info("Starting processing files: " + files.size());
-        ExecutorService serviceI1 = Executors.newFixedThreadPool(semaphoreService.getMaxFilesThreadsCount());
-        ExecutorService serviceI2 = Executors.newFixedThreadPool(semaphoreService.getMaxFilesThreadsCount());
-        ExecutorService serviceO = Executors.newFixedThreadPool(semaphoreService.getMaxFilesThreadsCount());
-        ExecutorService serviceInMemory = Executors.newFixedThreadPool(semaphoreService.getMaxAccessThreadsCount());
+    @Override
+    public void cancel() {
+        cancellationToken.cancel();
+    }
+
+    /**
+     * Read changes appended to the change feed after the stored offset
+     * Changes are usable only for incremental parse of the same feed, otherwise the end of the feed is taken
+     * before the library is walked, so changes committed during the walk are parsed again next time
+     *
+     * @return changes or null if the whole library should be walked
+     */
+    private ChangeFeed.Changes readChanges(Library library) throws IOException {
+        ChangeFeed changeFeed = new ChangeFeed(path);
+        Long feedId = library.getChangeFeedId();
+        if (incremental && feedId != null) {
+            ChangeFeed.Changes changes = changeFeed.read(library.getChangeFeedOffset());
+            if (changes.getFeedId() != 0 && changes.getFeedId() == feedId) {
+                LOGGER.info("Changes read from the change feed: " + changes.getChanges().size());
+                return changes;
+            }
+            LOGGER.info("Change feed " + feedId + " is not found, library is walked");
+        }
+        changeFeedEnd = changeFeed.readEnd();
+        return null;
+    }
+
+    /**
+     * Clear the checkpoint of the finished walk and store the change feed position
+     * Position is not stored after the resumed walk: changes committed before it was resumed can be behind the cursor,
+     * so the next parse walks the library again
+     */
+    private void saveFinishedParse(Library library, ChangeFeed.Changes changes, boolean resumed) {
+        boolean updated = false;
+        if (checkpoint != null && library.getParseCursor() != null) {
+            library.setParseCursor(null);
+            updated = true;
+        }
+        ChangeFeed.Changes position = changes == null ? changeFeedEnd : changes;
+        if (changesSource && !resumed && position != null && position.getFeedId() != 0) {
+            library.setChangeFeedId(position.getFeedId());
+            library.setChangeFeedOffset(position.getOffset());
+            updated = true;
+        }
+        if (updated) {
+            parserStorageService.updateLibrary(library);
+        }
+    }
+
+    /**
+     * Files of the sorted list starting from the cursor
+     */
+    private List<FileInfo> skipFilesBefore(List<FileInfo> files, String cursor) {
+        return files.stream()
+                .filter(fileInfo -> fileInfo.getPath().compareTo(cursor) >= 0)
+                .collect(Collectors.toList());
+    }
+
+    private void startCheckpointPath(ParsedFile parsedFile) {
+        if (checkpoint != null) {
+            checkpoint.start(parsedFile.getFileInfo().getPath());
+        }
+    }
+
+    /**
+     * Called when parsed file is saved or doesn't need to be saved, file skipped on cancel stays pending
+     */
+    private void completeCheckpointPath(Library library, ParsedFile parsedFile) {
+        if (checkpoint != null && !isSkipped(parsedFile) && checkpoint.complete(parsedFile.getFileInfo().getPath())) {
+            saveCheckpoint(library);
+        }
+    }
+
+    /**
+     * Store the cursor of the walk, parse restarted after a failure continues from it
+     */
+    private void saveCheckpoint(Library library) {
+        synchronized (checkpoint) {
+            String cursor = checkpoint.takeCursor();
+            if (cursor != null) {
+                library.setParseCursor(cursor);
+                parserStorageService.updateLibrary(library);
+                LOGGER.info("Parse checkpoint " + cursor);
+            }
+        }
+    }
+
+    /**
+     * Load stored file info to detect unchanged files and delete stored files which don't exist anymore
+     *
+     * @param library      library
+     * @param files        found files
+     * @param changedPaths paths changed since the previous parse, null if the whole library was walked
+     * @param resumeCursor cursor of the resumed walk, files before it are not checked, null for the whole library
+     */
+    private void prepareIncremental(Library library, List<FileInfo> files, Set<String> changedPaths, String resumeCursor) {
+        storedFileInfo = parserStorageService.getStoredFileInfo(library);
+        Set<String> vanished = new HashSet<>(storedFileInfo.keySet());
+        if (resumeCursor != null) {
+            vanished.removeIf(stored -> stored.compareTo(resumeCursor) < 0);
+        }
+        if (changedPaths != null) {
+            // entry is vanished with its archive or when it is removed from the changed archive
+            vanished.removeIf(stored -> !changedPaths.contains(
+                    ArchiveFiles.isEntryPath(stored) ? ArchiveFiles.getArchivePath(stored) : stored));
+        }
+        for (FileInfo file : files) {
+            vanished.remove(file.getPath());
+        }
+        if (!vanished.isEmpty()) {
+            LOGGER.info("Deleting vanished files: " + vanished.size());
+            parserStorageService.deleteParsedFiles(library, vanished);
+            storedFileInfo.keySet().removeAll(vanished);
+        }
+    }
+
+    private void proceedFiles(Library library, ParsedFilesStatus status, List<FileInfo> files) {
+        if (parserMode == ParserMode.PIPELINE) {
+            proceedFilesPipeline(library, status, files);
+        } else {
+            proceedFilesFutures(library, status, files);
+        }
+    }
+
+    private void proceedFilesFutures(Library library, ParsedFilesStatus status, List<FileInfo> files) {
+        LOGGER.info("Starting processing files: " + files.size() + ", executor type: " + executorType);
+        ExecutorService serviceI1 = executorType.createExecutor(semaphoreService.getMaxFilesThreadsCount());
+        ExecutorService serviceI2 = executorType.createExecutor(semaphoreService.getMaxFilesThreadsCount());
+        ExecutorService serviceO = executorType.createExecutor(semaphoreService.getMaxFilesThreadsCount());
+        batchWriter = createBatchWriter(library, status, pf -> completeCheckpointPath(library, pf));
+        // all files are submitted at once, so they are started in the checkpoint in order before
+        List<ParsedFile> sources = files.stream()
+                .map(ParsedFile::new)
+                .peek(this::startCheckpointPath)
+                .collect(Collectors.toList());
         List<CompletableFuture<ParsedFile>> futures =
-                files.parallelStream()
-                        .map(p -> parseFileService.pathToParsedFile(path, p))
+                sources.parallelStream()
                         .map(pf -> CompletableFuture.supplyAsync(() -> updateFileInfo(library, pf, status), serviceI1))
                         .map(fi -> fi.thenApplyAsync((pf) -> parseFile(library, pf, status), serviceI2))
-                        .map(fi -> fi.thenApplyAsync((pf) -> parseInfo(library, pf, status), serviceInMemory))
                         .map(fs -> fs.thenApplyAsync((pf) -> saveParsedFiled(library, pf, status), serviceO))
+                        .map(fs -> fs.thenApply(pf -> {
+                            if (!isSavedByBatchWriter(pf)) {
+                                completeCheckpointPath(library, pf);
+                            }
+                            return pf;
+                        }))
                         .collect(Collectors.toList());
         List<ParsedFile> parsedFiles = allDone(futures).join();
-        serviceI1.shutdown();
-        serviceI2.shutdown();
-        serviceO.shutdown();
-        serviceInMemory.shutdown();
+        closeBatchWriter();
+        shutdownExecutors(serviceI1, serviceI2, serviceO);
+        LOGGER.info("Files processed: " + parsedFiles.size());
+        LOGGER.info("Erroneous: " + parsedFiles.stream().filter(p -> p.getException() != null).count());
+    }
+
+    /**
+     * Process files through the stages linked by bounded queues
+     * Only parsed files which are in flight are kept in memory, saved file is released immediately
+     */
+    private void proceedFilesPipeline(Library library, ParsedFilesStatus status, List<FileInfo> files) {
+        LOGGER.info("Starting pipeline processing files: " + files.size() + ", queue size: " + pipelineQueueSize
+                + ", executor type: " + executorType);
+        int filesThreadsCount = semaphoreService.getMaxFilesThreadsCount();
+        ExecutorService serviceI1 = executorType.createExecutor(filesThreadsCount);
+        ExecutorService serviceI2 = executorType.createExecutor(filesThreadsCount);
+        ExecutorService serviceO = executorType.createExecutor(filesThreadsCount);
+        LongAdder processedCount = new LongAdder();
+        LongAdder erroneousCount = new LongAdder();
+        Consumer<ParsedFile> onProcessed = pf -> {
+            processedCount.increment();
+            if (pf.getException() != null) {
+                erroneousCount.increment();
+            }
+            completeCheckpointPath(library, pf);
+        };
+        // with batched saves parsed file is completed only when its batch is written
+        batchWriter = createBatchWriter(library, status, onProcessed);
+        StagedPipeline<ParsedFile> pipeline = new StagedPipeline<ParsedFile>(pipelineQueueSize)
+                .setErrorHandler(ParsedFile::addException)
+                .setCancellationToken(cancellationToken)
+                .addStage("updateFileInfo", serviceI1, filesThreadsCount, pf -> updateFileInfo(library, pf, status))
+                .addStage("parseFile", serviceI2, filesThreadsCount, pf -> parseFile(library, pf, status))
+                .addStage("saveParsedFile", serviceO, filesThreadsCount, pf -> saveParsedFiled(library, pf, status));
+        Iterator<ParsedFile> source = files.stream()
+                .map(ParsedFile::new)
+                .peek(this::startCheckpointPath)
+                .iterator();
         try {
-            serviceI1.awaitTermination(1, TimeUnit.SECONDS);
-            serviceI2.awaitTermination(1, TimeUnit.SECONDS);
-            serviceO.awaitTermination(1, TimeUnit.SECONDS);
-            serviceInMemory.awaitTermination(1, TimeUnit.SECONDS);
+            pipeline.run(source, pf -> {
+                if (!isSavedByBatchWriter(pf)) {
+                    onProcessed.accept(pf);
+                }
+            });
+        } catch (InterruptedException e) {
+            LOGGER.error("Pipeline processing interrupted", e);
+            Thread.currentThread().interrupt();
+        } finally {
+            closeBatchWriter();
+            shutdownExecutors(serviceI1, serviceI2, serviceO);
+        }
+        LOGGER.info("Files processed: " + processedCount.sum());
+        LOGGER.info("Erroneous: " + erroneousCount.sum());
+    }
+
+    private void shutdownExecutors(ExecutorService... services) {
+        for (ExecutorService service : services) {
+            service.shutdown();
+        }
+        try {
+            for (ExecutorService service : services) {
+                service.awaitTermination(1, TimeUnit.SECONDS);
+            }
         } catch (InterruptedException e) {
             LOGGER.error("serviceIO awaitTermination error");
         }
-        LOGGER.info("Files processed: " + parsedFiles.size());
-        LOGGER.info("Erroneous: " + parsedFiles.stream().filter(p -> p.getException() != null).count());
+    }
+
+    /**
+     * Create writer for batched saves
+     *
+     * @param onWritten called for every parsed file after its batch was written
+     * @return writer or null if batched saves are disabled
+     */
+    private ParsedFileBatchWriter createBatchWriter(Library library, ParsedFilesStatus status, Consumer<ParsedFile> onWritten) {
+        if (saveBatchSize <= 0) {
+            return null;
+        }
+        LOGGER.info("Batched saves: batch size " + saveBatchSize + ", flush interval " + saveBatchFlushInterval);
+        return new ParsedFileBatchWriter(parserStorageService, library, saveBatchSize, saveBatchFlushInterval, pf -> {
+            if (pf.getException() == null) {
+                status.getSavedCount().increment();
+                displayInfo(status);
+            }
+            onWritten.accept(pf);
+        });
+    }
+
+    private void closeBatchWriter() {
+        if (batchWriter != null) {
+            batchWriter.close();
+            batchWriter = null;
+        }
     }
 
     private ParsedFile saveParsedFiled(Library library, ParsedFile parsedFile, ParsedFilesStatus status) {
+        if (isUnchanged(parsedFile) || isSkipped(parsedFile)) {
+            return parsedFile;
+        }
         try {
-            parserStorageService.saveParsedFile(library, parsedFile);
-            status.getSavedCount().increment();
-            displayInfo(status);
+            if (batchWriter != null) {
+                batchWriter.add(parsedFile);
+            } else {
+                parserStorageService.saveParsedFile(library, parsedFile);
+                status.getSavedCount().increment();
+                displayInfo(status);
+            }
         } catch (Exception e) {
             parsedFile.addException(e);
         }
@@ -91,10 +390,26 @@ public class ParserImpl implements Parser {
     }
 
     private ParsedFile parseFile(final Library library, ParsedFile parsedFile, ParsedFilesStatus status) {
+        if (isUnchanged(parsedFile) || cancellationToken.isCancelled()) {
+            return parsedFile;
+        }
         semaphoreService.acquireFilesAccess();
         try {
-            parseFileService.parseFile(Paths.get(library.getPath()), parsedFile);
+            FileInfo fileInfo = parsedFile.getFileInfo();
+            if (ArchiveFiles.isEntryPath(fileInfo.getPath())) {
+                parseEntry(parsedFile);
+            } else if (isHashed(fileInfo) && fileInfo.getMd5Hash() == null) {
+                // hash is calculated from the same read as parsing
+                HashType fileHashType = getHashType(library);
+                parseFileService.parseFile(Paths.get(library.getPath()), parsedFile, fileHashType);
+                hashCache.put(fileInfo, fileHashType, fileInfo.getMd5Hash());
+            } else {
+                parseFileService.parseFile(Paths.get(library.getPath()), parsedFile);
+            }
             status.getXmlParsedCount().increment();
+            if (parsedFile.getState() == ParsedFile.ProcessState.BookInfoProcessed) {
+                status.getInfoParsedCount().increment();
+            }
             displayInfo(status);
         } catch (Exception ex) {
             parsedFile.addException(ex);
@@ -104,22 +419,47 @@ public class ParserImpl implements Parser {
         return parsedFile;
     }
 
-    private ParsedFile parseInfo(Library library, ParsedFile parsedFile, ParsedFilesStatus status) {
+    /**
+     * Parse the entry streamed from the archive, archive is shared with other entries in flight
+     */
+    private void parseEntry(ParsedFile parsedFile) throws IOException {
+        String entryPath = parsedFile.getFileInfo().getPath();
+        String archivePath = ArchiveFiles.getArchivePath(entryPath);
+        ZipFile zipFile = openArchives.acquire(archivePath);
         try {
-            parseFileService.parseInfo(parsedFile);
-
-            status.getInfoParsedCount().increment();
-            displayInfo(status);
-        } catch (Exception e) {
-            parsedFile.addException(e);
+            ZipEntry entry = zipFile.getEntry(ArchiveFiles.getEntryName(entryPath));
+            if (entry == null) {
+                throw new FileNotFoundException("Entry is not found: " + entryPath);
+            }
+            try (InputStream inputStream = zipFile.getInputStream(entry)) {
+                parseFileService.parseStream(inputStream, parsedFile);
+            }
+        } finally {
+            openArchives.release(archivePath);
         }
-        return parsedFile;
     }
 
     public ParsedFile updateFileInfo(final Library library, final ParsedFile parsedFile, ParsedFilesStatus status) {
+        if (cancellationToken.isCancelled()) {
+            return parsedFile;
+        }
         semaphoreService.acquireFilesAccess();
         try {
-            FileInfoHelper.updateFileInfo(Paths.get(library.getPath()), parsedFile.getFileInfo(), calcMD5hash);
+            FileInfo fileInfo = parsedFile.getFileInfo();
+            Path filePath = Paths.get(library.getPath()).resolve(fileInfo.getPath());
+            if (fileInfo.getFileSize() == null) {
+                // size and modified date are read by the walk, file info of another origin is updated here
+                FileInfoHelper.updateFileInfo(filePath, fileInfo, false);
+            }
+            FileInfo stored = storedFileInfo == null ? null : storedFileInfo.get(fileInfo.getPath());
+            if (stored == null) {
+                if (isHashed(fileInfo)) {
+                    fileInfo.setMd5Hash(hashCache.get(fileInfo, getHashType(library)));
+                }
+            } else if (checkUnchanged(library, parsedFile.getFileInfo(), stored)) {
+                parsedFile.setState(ParsedFile.ProcessState.Unchanged);
+                status.getUnchangedCount().increment();
+            }
             status.getFileInfoUpdatedCount().increment();
             displayInfo(status);
         } catch (Exception e) {
@@ -130,6 +470,62 @@ public class ParserImpl implements Parser {
         return parsedFile;
     }
 
+    /**
+     * Compare file info with the stored one
+     * Size and modified date are compared first, when they differ hash (if enabled) is taken from the library hash cache
+     * filled by the core refresh or the previous run: if the content is the same then only stored file info is updated
+     * File is not read here, hash missing in the cache is calculated while the file is parsed
+     *
+     * @return true if file doesn't need to be parsed again
+     */
+    private boolean checkUnchanged(Library library, FileInfo fileInfo, FileInfo stored) throws Exception {
+        if (!FileInfoHelper.checkFileInfoChanged(stored, fileInfo.getFileSize(), fileInfo.getModifiedDate())) {
+            fileInfo.setMd5Hash(stored.getMd5Hash());
+            return true;
+        }
+        if (isHashed(fileInfo)) {
+            fileInfo.setMd5Hash(hashCache.get(fileInfo, getHashType(library)));
+            if (stored.getMd5Hash() != null && stored.getMd5Hash().equals(fileInfo.getMd5Hash())) {
+                parserStorageService.updateFileInfo(library, fileInfo);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Entries of archives are not hashed, they are compared by size and modified date from the archive directory
+     */
+    private boolean isHashed(FileInfo fileInfo) {
+        return calcMD5hash && !ArchiveFiles.isEntryPath(fileInfo.getPath());
+    }
+
+    /**
+     * Hash type selected for the library or the configured one
+     */
+    private HashType getHashType(Library library) {
+        return library.getHashType() == null ? hashType : library.getHashType();
+    }
+
+    private boolean isUnchanged(ParsedFile parsedFile) {
+        return parsedFile.getState() == ParsedFile.ProcessState.Unchanged;
+    }
+
+    /**
+     * Parsed file is completed by the batch writer when its batch is written
+     */
+    private boolean isSavedByBatchWriter(ParsedFile parsedFile) {
+        return batchWriter != null && !isUnchanged(parsedFile) && !isSkipped(parsedFile);
+    }
+
+    /**
+     * File which was not parsed because the parser was cancelled, it is not saved
+     */
+    private boolean isSkipped(ParsedFile parsedFile) {
+        return cancellationToken.isCancelled() && parsedFile.getState() == ParsedFile.ProcessState.None
+                && parsedFile.getException() == null;
+    }
+
     private Library registerLibrary(Path path) {
         LOGGER.debug("Registering library " + path);
         parserStorageService.initLibrary(path.toString());
@@ -147,14 +543,82 @@ public class ParserImpl implements Parser {
                         .collect(Collectors.toList()));
     }
 
-    private List<Path> getFilesList() throws IOException {
+    /**
+     * Get file info of found files, size and modified date are taken from the attributes read by the walk
+     * Archives are replaced by their entries read from the archive directory, entries of an archive go together
+     * Walk is stopped when the parser is cancelled
+     */
+    private List<FileInfo> getFilesList() throws IOException {
         LOGGER.info("getFilesList started " + this);
-        List<Path> files = fileService.getFilesList(filterAllowExtensions(), true, path);
+        List<FileInfo> files = Collections.synchronizedList(new ArrayList<>());
+        List<String> extensions = filterAllowExtensions();
+        try {
+            fileService.walkFiles(extensions, true, path, (file, attributes) -> {
+                cancellationToken.throwIfCancelled();
+                FileInfo fileInfo = new FileInfo(FileUtils.constructRelativePath(path, file));
+                if (fileInfo.getFileType() != null && fileInfo.getFileType().isArchive()) {
+                    files.addAll(getEntriesList(fileInfo.getPath(), extensions));
+                } else {
+                    FileInfoHelper.updateFileInfo(fileInfo, attributes);
+                    files.add(fileInfo);
+                }
+            });
+        } catch (CancellationException e) {
+            LOGGER.info("getFilesList cancelled " + this);
+        }
         LOGGER.info("getFilesList ended " + this);
         LOGGER.info("Loaded " + files.size() + " files");
         return files;
     }
 
+    /**
+     * Paths of the allowed types changed by the feed changes, only the last change of the path matters
+     */
+    private Set<String> getChangedPaths(List<ChangeFeed.Change> changes) {
+        List<String> extensions = filterAllowExtensions();
+        Set<String> result = new LinkedHashSet<>();
+        for (ChangeFeed.Change change : changes) {
+            FileType fileType = FileType.fileTypeByExtension(Paths.get(change.getPath()));
+            if (fileType != null && extensions.contains(fileType.getExtension())) {
+                result.add(change.getPath());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get file info of changed files which exist, archives are replaced by their entries
+     * Size and modified date are read by the update file info stage
+     */
+    private List<FileInfo> getChangedFilesList(Set<String> changedPaths) {
+        List<FileInfo> files = new ArrayList<>();
+        List<String> extensions = filterAllowExtensions();
+        for (String changedPath : changedPaths) {
+            if (!Files.exists(path.resolve(changedPath))) {
+                continue;
+            }
+            FileInfo fileInfo = new FileInfo(changedPath);
+            if (fileInfo.getFileType().isArchive()) {
+                files.addAll(getEntriesList(changedPath, extensions));
+            } else {
+                files.add(fileInfo);
+            }
+        }
+        LOGGER.info("Changed paths " + changedPaths.size() + ", files " + files.size());
+        return files;
+    }
+
+    private List<FileInfo> getEntriesList(String archivePath, List<String> extensions) {
+        try {
+            return ArchiveFiles.getEntriesFileInfo(path, archivePath).stream()
+                    .filter(fileInfo -> extensions.contains(fileInfo.getFileType().getExtension()))
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            LOGGER.error("Cannot read archive " + archivePath, e);
+            return Collections.emptyList();
+        }
+    }
+
     private List<String> filterAllowExtensions() {
         return FileType.getExtensions().stream()
                 .filter(ex -> allowedExtensions.size() == 0 || allowedExtensions.contains(ex.toUpperCase().substring(1)))
@@ -170,6 +634,42 @@ public class ParserImpl implements Parser {
         this.calcMD5hash = calcMD5hash;
     }
 
+    public void setHashType(HashType hashType) {
+        this.hashType = hashType;
+    }
+
+    public void setParserMode(ParserMode parserMode) {
+        this.parserMode = parserMode;
+    }
+
+    public void setExecutorType(ExecutorType executorType) {
+        this.executorType = executorType;
+    }
+
+    public void setPipelineQueueSize(int pipelineQueueSize) {
+        this.pipelineQueueSize = pipelineQueueSize;
+    }
+
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+    }
+
+    public void setCheckpointSize(int checkpointSize) {
+        this.checkpointSize = checkpointSize;
+    }
+
+    public void setChangesSource(boolean changesSource) {
+        this.changesSource = changesSource;
+    }
+
+    public void setSaveBatchSize(int saveBatchSize) {
+        this.saveBatchSize = saveBatchSize;
+    }
+
+    public void setSaveBatchFlushInterval(long saveBatchFlushInterval) {
+        this.saveBatchFlushInterval = saveBatchFlushInterval;
+    }
+
     private void displayInfo(ParsedFilesStatus status) {
         LOGGER.debug(status);
     }
@@ -0,0 +1,31 @@
+package org.library.parser.parser;
+
+public enum ParserMode {
+    /**
+     * All files are mapped to chained futures up front and joined at the end
+     */
+    FUTURES("futures"),
+    /**
+     * Stages are linked by bounded queues, parsed file is released as soon as it is saved
+     */
+    PIPELINE("pipeline");
+
+    private final String name;
+
+    ParserMode(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public static ParserMode getParserModeByName(String name) {
+        for (ParserMode parserMode : values()) {
+            if (parserMode.getName().equalsIgnoreCase(name)) {
+                return parserMode;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,235 @@
+package org.library.parser.parser;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.library.common.utils.CancellationToken;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * Chain of processing stages linked by bounded queues
+ * Every stage has own workers which take an item from the stage queue, apply the stage function
+ * and put the result to the queue of the next stage (or pass it to the sink for the last stage).
+ * Put blocks while the next queue is full, so the source and fast stages are throttled by the slowest one
+ * and no more than queueSize items per stage are kept in memory.
+ * Executor of every stage must have at least workersCount threads and must not be shared between stages.
+ * Worker which exits abnormally (e.g. by an Error) fails the pipeline: feeding stops, all workers exit
+ * and the failure is rethrown by run, so nobody waits for the dead stage forever.
+ *
+ * @param <T> type of processed item
+ */
+class StagedPipeline<T> {
+    private static final Logger LOGGER = LogManager.getLogger(StagedPipeline.class);
+    private static final long POLL_TIMEOUT_MS = 100;
+
+    private final int queueSize;
+    private final List<Stage> stages = new ArrayList<>();
+    private BiConsumer<T, Exception> errorHandler = (item, ex) -> LOGGER.error("Stage error for " + item, ex);
+    private CancellationToken cancellationToken = new CancellationToken();
+    private volatile Throwable failure;
+
+    StagedPipeline(int queueSize) {
+        if (queueSize <= 0) {
+            throw new IllegalArgumentException("Queue size should be positive: " + queueSize);
+        }
+        this.queueSize = queueSize;
+    }
+
+    StagedPipeline<T> addStage(String name, ExecutorService executor, int workersCount, UnaryOperator<T> function) {
+        if (workersCount <= 0) {
+            throw new IllegalArgumentException("Workers count should be positive for stage " + name);
+        }
+        stages.add(new Stage(name, executor, workersCount, function));
+        return this;
+    }
+
+    /**
+     * Handler for runtime exceptions thrown by a stage function or by the sink
+     * Item is passed to the next stage anyway
+     *
+     * @param errorHandler handler
+     * @return this pipeline
+     */
+    StagedPipeline<T> setErrorHandler(BiConsumer<T, Exception> errorHandler) {
+        this.errorHandler = errorHandler;
+        return this;
+    }
+
+    /**
+     * Token which stops feeding of the source items
+     * Items already fed go through all stages, so stage functions decide what to skip
+     *
+     * @param cancellationToken token
+     * @return this pipeline
+     */
+    StagedPipeline<T> setCancellationToken(CancellationToken cancellationToken) {
+        this.cancellationToken = cancellationToken;
+        return this;
+    }
+
+    /**
+     * Feed all items from the source through the stages and wait for the last item to reach the sink
+     * Sink is called concurrently from workers of the last stage
+     *
+     * @param source items to process, consumed lazily
+     * @param sink   consumer of processed items
+     * @throws InterruptedException  if feeding or awaiting was interrupted
+     * @throws IllegalStateException if a worker has failed, the failure is its cause (Error is rethrown as is)
+     */
+    void run(Iterator<T> source, Consumer<T> sink) throws InterruptedException {
+        if (stages.isEmpty()) {
+            source.forEachRemaining(sink);
+            return;
+        }
+        for (int i = 0; i < stages.size(); i++) {
+            stages.get(i).start(i + 1 < stages.size() ? stages.get(i + 1) : null, sink);
+        }
+        Stage first = stages.get(0);
+        try {
+            while (!cancellationToken.isCancelled() && source.hasNext()) {
+                if (!put(first.queue, source.next())) {
+                    break;
+                }
+            }
+        } finally {
+            first.upstreamDone = true;
+        }
+        for (Stage stage : stages) {
+            stage.finished.await();
+        }
+        rethrowFailure();
+    }
+
+    /**
+     * Put the item, waiting while the queue is full
+     *
+     * @return false if the pipeline has failed and the item was not put
+     */
+    private boolean put(BlockingQueue<T> queue, T item) throws InterruptedException {
+        while (!queue.offer(item, POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+            if (failure != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void fail(String stageName, Throwable e) {
+        LOGGER.error("Stage " + stageName + " worker failed", e);
+        synchronized (this) {
+            if (failure == null) {
+                failure = e;
+            }
+        }
+    }
+
+    private void rethrowFailure() {
+        Throwable result = failure;
+        if (result instanceof Error) {
+            throw (Error) result;
+        }
+        if (result != null) {
+            throw new IllegalStateException("Pipeline failed", result);
+        }
+    }
+
+    private class Stage {
+        private final String name;
+        private final ExecutorService executor;
+        private final int workersCount;
+        private final UnaryOperator<T> function;
+        private final BlockingQueue<T> queue = new ArrayBlockingQueue<>(queueSize);
+        private final AtomicInteger activeWorkers;
+        private final CountDownLatch finished;
+        private volatile boolean upstreamDone = false;
+
+        Stage(String name, ExecutorService executor, int workersCount, UnaryOperator<T> function) {
+            this.name = name;
+            this.executor = executor;
+            this.workersCount = workersCount;
+            this.function = function;
+            this.activeWorkers = new AtomicInteger(workersCount);
+            this.finished = new CountDownLatch(workersCount);
+        }
+
+        void start(Stage next, Consumer<T> sink) {
+            LOGGER.debug("Starting stage " + name + " with " + workersCount + " workers");
+            for (int i = 0; i < workersCount; i++) {
+                executor.submit(() -> work(next, sink));
+            }
+        }
+
+        private void work(Stage next, Consumer<T> sink) {
+            try {
+                T item;
+                while ((item = take()) != null) {
+                    T result = apply(item);
+                    if (next != null) {
+                        if (!put(next.queue, result)) {
+                            break;
+                        }
+                    } else {
+                        accept(sink, result);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(name, e);
+            } catch (Throwable e) {
+                fail(name, e);
+            } finally {
+                if (activeWorkers.decrementAndGet() == 0) {
+                    LOGGER.debug("Stage " + name + " finished");
+                    if (next != null) {
+                        next.upstreamDone = true;
+                    }
+                }
+                finished.countDown();
+            }
+        }
+
+        private T apply(T item) {
+            try {
+                return function.apply(item);
+            } catch (RuntimeException e) {
+                errorHandler.accept(item, e);
+                return item;
+            }
+        }
+
+        private void accept(Consumer<T> sink, T item) {
+            try {
+                sink.accept(item);
+            } catch (RuntimeException e) {
+                errorHandler.accept(item, e);
+            }
+        }
+
+        /**
+         * Wait for the next item
+         *
+         * @return item or null if upstream is done and queue is drained or if the pipeline has failed
+         */
+        private T take() throws InterruptedException {
+            while (failure == null) {
+                // read the flag before poll: all items are in the queue when upstream is done
+                boolean done = upstreamDone;
+                T item = queue.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                if (item != null) {
+                    return item;
+                }
+                if (done) {
+                    return null;
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package org.library.parser.services;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.library.common.entities.Library;
+import org.library.common.entities.ParsedFile;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Collects parsed files and saves them in batches
+ * Batch is written when it reaches batchSize items or when its oldest item waits longer than flushInterval
+ * Full batch is written by the thread which added the last item, so writers are throttled by the storage
+ * Every parsed file is passed to onWritten after its batch was written, failed ones have an exception added
+ * Exception of onWritten is added to its parsed file as well, so the scheduled flush is never cancelled by it
+ */
+public class ParsedFileBatchWriter implements AutoCloseable {
+    private static final Logger LOGGER = LogManager.getLogger(ParsedFileBatchWriter.class);
+
+    private final ParserStorageService parserStorageService;
+    private final Library library;
+    private final int batchSize;
+    private final long flushInterval;
+    private final Consumer<ParsedFile> onWritten;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+    private List<ParsedFile> batch;
+    private long batchStarted;
+
+    /**
+     * @param parserStorageService storage to save batches
+     * @param library              library of parsed files
+     * @param batchSize            max count of parsed files in one batch
+     * @param flushInterval        max time in milliseconds for parsed file to wait in the batch
+     * @param onWritten            called for every parsed file after its batch was written
+     */
+    public ParsedFileBatchWriter(ParserStorageService parserStorageService, Library library,
+                                 int batchSize, long flushInterval, Consumer<ParsedFile> onWritten) {
+        if (batchSize <= 0 || flushInterval <= 0) {
+            throw new IllegalArgumentException("Batch size and flush interval should be positive");
+        }
+        this.parserStorageService = parserStorageService;
+        this.library = library;
+        this.batchSize = batchSize;
+        this.flushInterval = flushInterval;
+        this.onWritten = onWritten;
+        this.batch = new ArrayList<>(batchSize);
+        scheduler.scheduleWithFixedDelay(this::flushExpired, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+    }
+
+    public void add(ParsedFile parsedFile) {
+        List<ParsedFile> fullBatch = null;
+        synchronized (this) {
+            if (batch.isEmpty()) {
+                batchStarted = System.currentTimeMillis();
+            }
+            batch.add(parsedFile);
+            if (batch.size() >= batchSize) {
+                fullBatch = takeBatch();
+            }
+        }
+        if (fullBatch != null) {
+            write(fullBatch);
+        }
+    }
+
+    public void flush() {
+        List<ParsedFile> rest;
+        synchronized (this) {
+            rest = takeBatch();
+        }
+        if (!rest.isEmpty()) {
+            write(rest);
+        }
+    }
+
+    /**
+     * Stop time based flushing and write the rest of parsed files
+     */
+    @Override
+    public void close() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            LOGGER.error("scheduler awaitTermination error");
+        }
+        flush();
+    }
+
+    /**
+     * Runs on the scheduler, exception is logged because it would cancel further flushes silently
+     */
+    private void flushExpired() {
+        try {
+            List<ParsedFile> expiredBatch = null;
+            synchronized (this) {
+                if (!batch.isEmpty() && System.currentTimeMillis() - batchStarted >= flushInterval) {
+                    expiredBatch = takeBatch();
+                }
+            }
+            if (expiredBatch != null) {
+                write(expiredBatch);
+            }
+        } catch (RuntimeException e) {
+            LOGGER.error("flushExpired error", e);
+        }
+    }
+
+    private List<ParsedFile> takeBatch() {
+        List<ParsedFile> result = batch;
+        batch = new ArrayList<>(batchSize);
+        return result;
+    }
+
+    private void write(List<ParsedFile> parsedFiles) {
+        LOGGER.debug("Writing batch of " + parsedFiles.size());
+        try {
+            parserStorageService.saveParsedFiles(library, parsedFiles);
+        } catch (Exception e) {
+            LOGGER.error("Cannot write batch of " + parsedFiles.size(), e);
+            parsedFiles.forEach(parsedFile -> parsedFile.addException(e));
+        }
+        for (ParsedFile parsedFile : parsedFiles) {
+            try {
+                onWritten.accept(parsedFile);
+            } catch (RuntimeException e) {
+                LOGGER.error("Cannot complete written file " + parsedFile.getFileInfo().getPath(), e);
+                parsedFile.addException(e);
+            }
+        }
+    }
+}
@@ -1,13 +1,58 @@
 package org.library.parser.services;
 
+import org.library.common.entities.FileInfo;
 import org.library.common.entities.Library;
 import org.library.common.entities.ParsedFile;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
 public interface ParserStorageService {
 
     Library registerLibrary(String path);
     void saveParsedFile(Library library, ParsedFile parsedFile);
+
+    /**
+     * Save library state, e.g. change feed position
+     *
+     * @param library registered library
+     */
+    void updateLibrary(Library library);
+
+    /**
+     * Save parsed files in one round trip
+     * Failure of single document is added to its parsed file and doesn't stop the others
+     *
+     * @param library     library of parsed files
+     * @param parsedFiles parsed files to save
+     */
+    void saveParsedFiles(Library library, List<ParsedFile> parsedFiles);
     void clearLibrary(Library library);
 
+    /**
+     * Load file info of all stored parsed files of the library
+     *
+     * @param library library
+     * @return map of relative path:file info
+     */
+    Map<String, FileInfo> getStoredFileInfo(Library library);
+
+    /**
+     * Replace file info of stored parsed file without touching the rest of parsed data
+     *
+     * @param library  library
+     * @param fileInfo new file info
+     */
+    void updateFileInfo(Library library, FileInfo fileInfo);
+
+    /**
+     * Delete stored parsed files
+     *
+     * @param library library
+     * @param paths   relative paths of files
+     */
+    void deleteParsedFiles(Library library, Collection<String> paths);
+
     void initLibrary(String path);
 }
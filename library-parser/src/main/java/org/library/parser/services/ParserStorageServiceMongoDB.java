@@ -1,7 +1,15 @@
 package org.library.parser.services;
 
+import com.mongodb.BasicDBObject;
+import com.mongodb.BulkWriteError;
+import com.mongodb.BulkWriteException;
+import com.mongodb.BulkWriteOperation;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import com.mongodb.MongoException;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.library.common.entities.FileInfo;
 import org.library.common.entities.Library;
 import org.library.common.entities.ParsedFile;
 import org.library.parser.repositories.ParsedFileRepository;
@@ -9,13 +17,26 @@ import org.library.parser.repositories.LibraryRepository;
 import org.library.parser.repositories.ParsedFileTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
 
 @Component
 public class ParserStorageServiceMongoDB implements ParserStorageService {
     private static final Logger LOGGER = LogManager.getLogger(ParserStorageServiceMongoDB.class);
+    private static final String ID_FIELD = "_id";
+    private static final String FILE_INFO_FIELD = "fileInfo";
+    private static final String FILE_INFO_PATH_FIELD = "path";
+    private static final String FILE_INFO_NAME_FIELD = "fileName";
+    private static final String FILE_INFO_SIZE_FIELD = "fileSize";
+    private static final String FILE_INFO_DATE_FIELD = "modifiedDate";
+    private static final String FILE_INFO_MD5_FIELD = "md5Hash";
+    private static final int DELETE_CHUNK_SIZE = 1000;
     private final LibraryRepository libraryRepository;
     private final ParsedFileTemplate parsedFileTemplate;
     private final ParsedFileRepository parsedFileRepository;
@@ -50,11 +71,52 @@ public class ParserStorageServiceMongoDB implements ParserStorageService {
         return library;
     }
 
+    @Override
+    public void updateLibrary(Library library) {
+        libraryRepository.save(library);
+    }
+
     @Override
     public void saveParsedFile(Library library, ParsedFile parsedFile) {
         parsedFileTemplate.save(parsedFile, getParsedFileCollectionName(library));
     }
 
+    /**
+     * Unordered bulk upsert: documents are replaced by id, failed ones don't stop the rest of the batch
+     * Index of the write error matches the order of requests added to the bulk operation
+     */
+    @Override
+    public void saveParsedFiles(Library library, List<ParsedFile> parsedFiles) {
+        if (parsedFiles.isEmpty()) {
+            return;
+        }
+        DBCollection collection = parsedFileTemplate.getCollection(getParsedFileCollectionName(library));
+        BulkWriteOperation bulkWriteOperation = collection.initializeUnorderedBulkOperation();
+        List<ParsedFile> requests = new ArrayList<>(parsedFiles.size());
+        for (ParsedFile parsedFile : parsedFiles) {
+            try {
+                DBObject dbObject = new BasicDBObject();
+                parsedFileTemplate.getConverter().write(parsedFile, dbObject);
+                bulkWriteOperation.find(new BasicDBObject(ID_FIELD, dbObject.get(ID_FIELD))).upsert().replaceOne(dbObject);
+                requests.add(parsedFile);
+            } catch (RuntimeException e) {
+                LOGGER.error("Cannot convert " + parsedFile.getFileInfo().getPath(), e);
+                parsedFile.addException(e);
+            }
+        }
+        if (requests.isEmpty()) {
+            return;
+        }
+        try {
+            bulkWriteOperation.execute();
+        } catch (BulkWriteException e) {
+            LOGGER.error("Bulk write failed for " + e.getWriteErrors().size() + " of " + requests.size());
+            for (BulkWriteError writeError : e.getWriteErrors()) {
+                requests.get(writeError.getIndex()).addException(new MongoException(writeError.getMessage()));
+            }
+        }
+    }
+
     public String getParsedFileCollectionName(Library library) {
         return "files_" + library.getId();
     }
@@ -66,12 +128,69 @@ public class ParserStorageServiceMongoDB implements ParserStorageService {
         libraryRepository.delete(library);
     }
 
+    /**
+     * Only file info sub-document is fetched, it is read directly to avoid mapping of the whole parsed file
+     */
+    @Override
+    public Map<String, FileInfo> getStoredFileInfo(Library library) {
+        Map<String, FileInfo> result = new HashMap<>();
+        Query query = new Query();
+        query.fields().include(FILE_INFO_FIELD);
+        parsedFileTemplate.executeQuery(query, getParsedFileCollectionName(library), dbObject -> {
+            Object fileInfoObject = dbObject.get(FILE_INFO_FIELD);
+            if (fileInfoObject instanceof DBObject) {
+                result.put(String.valueOf(dbObject.get(ID_FIELD)), dbObjectToFileInfo((DBObject) fileInfoObject));
+            }
+        });
+        LOGGER.info("Loaded stored file info: " + result.size());
+        return result;
+    }
+
+    private FileInfo dbObjectToFileInfo(DBObject dbObject) {
+        Object fileSize = dbObject.get(FILE_INFO_SIZE_FIELD);
+        Object modifiedDate = dbObject.get(FILE_INFO_DATE_FIELD);
+        return new FileInfo(null,
+                (String) dbObject.get(FILE_INFO_PATH_FIELD),
+                (String) dbObject.get(FILE_INFO_NAME_FIELD),
+                fileSize instanceof Number ? ((Number) fileSize).longValue() : null,
+                // LocalDateTime is stored as date in the system default zone
+                modifiedDate instanceof Date ? LocalDateTime.ofInstant(((Date) modifiedDate).toInstant(), ZoneId.systemDefault()) : null,
+                (String) dbObject.get(FILE_INFO_MD5_FIELD));
+    }
+
+    @Override
+    public void updateFileInfo(Library library, FileInfo fileInfo) {
+        parsedFileTemplate.updateFirst(Query.query(Criteria.where(ID_FIELD).is(fileInfo.getPath())),
+                Update.update(FILE_INFO_FIELD, fileInfo), getParsedFileCollectionName(library));
+    }
+
+    @Override
+    public void deleteParsedFiles(Library library, Collection<String> paths) {
+        List<String> chunk = new ArrayList<>(DELETE_CHUNK_SIZE);
+        for (String path : paths) {
+            chunk.add(path);
+            if (chunk.size() == DELETE_CHUNK_SIZE) {
+                deleteParsedFilesChunk(library, chunk);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            deleteParsedFilesChunk(library, chunk);
+        }
+    }
+
+    private void deleteParsedFilesChunk(Library library, List<String> paths) {
+        parsedFileTemplate.remove(Query.query(Criteria.where(ID_FIELD).in(paths)), getParsedFileCollectionName(library));
+    }
+
     @Override
     public void initLibrary(String path) {
         LOGGER.debug("init database");
         if ("recreate".equalsIgnoreCase(mode)) {
             Library library = libraryRepository.findByPath(path);
-            if (library != null) {
+            if (library != null && library.getParseCursor() != null) {
+                LOGGER.info("Library is not cleared, unfinished parse is resumed: " + path);
+            } else if (library != null) {
                 clearLibrary(library);
             }
         }